@@ -0,0 +1,34 @@
+package com.badnetwork.benchmarks.support;
+
+import org.apache.kafka.clients.producer.Producer;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * KafkaTemplate whose sends complete immediately without a broker, so benchmarks measure only the caller.
+ */
+public class NoopKafkaTemplate extends KafkaTemplate<String, String> {
+
+    private final LongAdder sent = new LongAdder();
+
+    public NoopKafkaTemplate() {
+        super(NoopKafkaTemplate::noProducer);
+    }
+
+    private static Producer<String, String> noProducer() {
+        throw new UnsupportedOperationException("Benchmarks never create a producer");
+    }
+
+    @Override
+    public CompletableFuture<SendResult<String, String>> send(String topic, String key, String data) {
+        sent.increment();
+        return CompletableFuture.completedFuture(null);
+    }
+
+    public long getSent() {
+        return sent.sum();
+    }
+}
@@ -0,0 +1,26 @@
+package com.badnetwork.benchmarks.support;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Transport of every service whose sends complete immediately, so benchmarks measure only the caller.
+ */
+public class NoopTransport implements com.badnetwork.trafficsim.transport.TrafficTransport,
+        com.badnetwork.trafficencoder.transport.TrafficTransport,
+        com.badnetwork.trafficscrambler.transport.TrafficTransport {
+
+    private static final CompletableFuture<Long> SENT = CompletableFuture.completedFuture(0L);
+
+    private final LongAdder sent = new LongAdder();
+
+    @Override
+    public CompletableFuture<Long> send(String topic, String key, String value) {
+        sent.increment();
+        return SENT;
+    }
+
+    public long getSent() {
+        return sent.sum();
+    }
+}
@@ -0,0 +1,134 @@
+package com.badnetwork.benchmarks.support;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketExtension;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.Principal;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * WebSocket session that discards what it is sent, touching the payload as a real socket write would.
+ */
+public class NoopWebSocketSession implements WebSocketSession {
+
+    private final String id;
+    private final URI uri;
+    private final Map<String, Object> attributes = new ConcurrentHashMap<>();
+    private final LongAdder bytesSent = new LongAdder();
+    private final AtomicLong messagesSent = new AtomicLong();
+    private volatile boolean open = true;
+
+    public NoopWebSocketSession(String id, String format) {
+        this.id = id;
+        this.uri = URI.create("ws://localhost/traffic?format=" + format);
+    }
+
+    @Override
+    public void sendMessage(WebSocketMessage<?> message) {
+        if (message instanceof TextMessage text) {
+            // Servlet containers take the String payload and encode it to UTF-8 per session
+            bytesSent.add(text.getPayload().getBytes(StandardCharsets.UTF_8).length);
+        } else if (message instanceof BinaryMessage binary) {
+            bytesSent.add(binary.getPayload().remaining());
+        }
+        messagesSent.incrementAndGet();
+    }
+
+    public long getBytesSent() {
+        return bytesSent.sum();
+    }
+
+    public long getMessagesSent() {
+        return messagesSent.get();
+    }
+
+    @Override
+    public String getId() {
+        return id;
+    }
+
+    @Override
+    public URI getUri() {
+        return uri;
+    }
+
+    @Override
+    public HttpHeaders getHandshakeHeaders() {
+        return new HttpHeaders();
+    }
+
+    @Override
+    public Map<String, Object> getAttributes() {
+        return attributes;
+    }
+
+    @Override
+    public Principal getPrincipal() {
+        return null;
+    }
+
+    @Override
+    public InetSocketAddress getLocalAddress() {
+        return null;
+    }
+
+    @Override
+    public InetSocketAddress getRemoteAddress() {
+        return null;
+    }
+
+    @Override
+    public String getAcceptedProtocol() {
+        return null;
+    }
+
+    @Override
+    public void setTextMessageSizeLimit(int messageSizeLimit) {
+    }
+
+    @Override
+    public int getTextMessageSizeLimit() {
+        return Integer.MAX_VALUE;
+    }
+
+    @Override
+    public void setBinaryMessageSizeLimit(int messageSizeLimit) {
+    }
+
+    @Override
+    public int getBinaryMessageSizeLimit() {
+        return Integer.MAX_VALUE;
+    }
+
+    @Override
+    public List<WebSocketExtension> getExtensions() {
+        return List.of();
+    }
+
+    @Override
+    public boolean isOpen() {
+        return open;
+    }
+
+    @Override
+    public void close() {
+        open = false;
+    }
+
+    @Override
+    public void close(CloseStatus status) {
+        open = false;
+    }
+}
@@ -0,0 +1,126 @@
+package com.badnetwork.traffic2ui.handler;
+
+import com.badnetwork.benchmarks.support.NoopWebSocketSession;
+import com.badnetwork.traffic2ui.config.Traffic2UIProperties;
+import com.badnetwork.traffic2ui.model.EntityUpdate;
+import com.badnetwork.traffic2ui.service.EntityStateStore;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * One tick's fan-out: {@link TrafficWebSocketHandler#broadcast} of a batch to N sessions, until every
+ * session's writer thread has encoded (once per shared frame) and sent the tick's frame to its discarding
+ * session, as it would in production. {@code encode} measures the per-format encoding of one shared frame
+ * on its own.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BroadcastBenchmark {
+
+    @Param({"1", "100", "1000"})
+    public int sessions;
+
+    @Param({"json", "json-binary", "packed"})
+    public String format;
+
+    /** Entities updated per tick. */
+    @Param({"1000"})
+    public int batchSize;
+
+    private TrafficWebSocketHandler handler;
+    private FrameEncoder frameEncoder;
+    private EntityStateStore entityStateStore;
+    private final List<NoopWebSocketSession> openSessions = new ArrayList<>();
+    private List<EntityUpdate> batch;
+    private long tick;
+    // Messages each session has been sent once the current tick is delivered
+    private long[] delivered;
+
+    @Setup
+    public void setUp() {
+        Traffic2UIProperties properties = new Traffic2UIProperties();
+        properties.getState().setSnapshotOnConnect(false);
+        ObjectMapper objectMapper = new ObjectMapper();
+        EntityDictionary entityDictionary = new EntityDictionary();
+        frameEncoder = new FrameEncoder(objectMapper, entityDictionary);
+        entityStateStore = new EntityStateStore(properties);
+        handler = new TrafficWebSocketHandler(properties, frameEncoder, entityStateStore, entityDictionary, objectMapper);
+
+        batch = new ArrayList<>(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            batch.add(new EntityUpdate("entity-" + i, 0, 0, 1_700_000_000_000L, true, 40.0 + i * 1e-4, -74.0, null, null));
+        }
+        broadcastTick();
+
+        for (int i = 0; i < sessions; i++) {
+            NoopWebSocketSession session = new NoopWebSocketSession("s" + i, format);
+            openSessions.add(session);
+            handler.afterConnectionEstablished(session);
+        }
+        delivered = awaitIdle();
+    }
+
+    /**
+     * Waits out the frames sent on connect (dictionary frames in the packed format).
+     *
+     * @return the messages each session has been sent
+     */
+    private long[] awaitIdle() {
+        long[] sent = new long[sessions];
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(100));
+            for (int i = 0; i < sessions; i++) {
+                long now = openSessions.get(i).getMessagesSent();
+                changed |= now != sent[i];
+                sent[i] = now;
+            }
+        }
+        return sent;
+    }
+
+    @TearDown
+    public void tearDown() {
+        openSessions.forEach(session -> handler.afterConnectionClosed(session, null));
+    }
+
+    @Benchmark
+    public void broadcast() {
+        broadcastTick();
+        for (int i = 0; i < sessions; i++) {
+            long expected = ++delivered[i];
+            NoopWebSocketSession session = openSessions.get(i);
+            while (session.getMessagesSent() < expected) {
+                // Yield rather than spin: the writers need the CPU on small machines
+                Thread.yield();
+            }
+        }
+    }
+
+    private void broadcastTick() {
+        tick++;
+        List<EntityUpdate> updates = new ArrayList<>(batch.size());
+        for (EntityUpdate update : batch) {
+            updates.add(new EntityUpdate(update.getId(), 1e-6, 1e-6, update.getTimestamp() + tick, false, null, null, null, null));
+        }
+        entityStateStore.runExclusive(() -> {
+            updates.forEach(entityStateStore::apply);
+            handler.broadcast(updates);
+        });
+    }
+
+    @Benchmark
+    public Object encode() {
+        return frameEncoder.frame(batch).messageFor(FrameFormat.fromParameter(format));
+    }
+}
@@ -0,0 +1,71 @@
+package com.badnetwork.trafficencoder.geofence;
+
+import com.badnetwork.benchmarks.support.NoopTransport;
+import com.badnetwork.trafficencoder.config.EncoderProperties;
+import com.badnetwork.trafficencoder.model.TrafficEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One entity update against `fences` 12-sided fences scattered over a 10 x 10 degree area, covering about
+ * a tenth of it in total: R-tree prefilter, exact tests of the candidates and the ENTER/EXIT diff.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GeofenceEngineBenchmark {
+
+    private static final double AREA_DEG = 10;
+    private static final int VERTICES = 12;
+    private static final int POSITIONS = 65536;
+
+    @Param({"1000", "10000", "100000"})
+    public int fences;
+
+    private GeofenceEngine engine;
+    private TrafficEvent[] events;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        EncoderProperties properties = new EncoderProperties();
+        properties.getGeofence().setEnabled(true);
+        engine = new GeofenceEngine(properties, new NoopTransport(), new ObjectMapper());
+
+        SplittableRandom random = new SplittableRandom(42);
+        double radius = AREA_DEG * Math.sqrt(0.1 / (Math.PI * fences));
+        List<Geofence> loaded = new ArrayList<>(fences);
+        for (int f = 0; f < fences; f++) {
+            double centerLat = 40 + random.nextDouble() * AREA_DEG;
+            double centerLon = -80 + random.nextDouble() * AREA_DEG;
+            double[][] ring = new double[VERTICES][];
+            for (int v = 0; v < VERTICES; v++) {
+                double angle = 2 * Math.PI * v / VERTICES;
+                double r = radius * (0.7 + 0.6 * random.nextDouble());
+                ring[v] = new double[] {centerLon + r * Math.cos(angle), centerLat + r * Math.sin(angle)};
+            }
+            loaded.add(Geofence.of("fence-" + f, List.<double[][]>of(ring)));
+        }
+        engine.setFences(loaded);
+
+        events = new TrafficEvent[POSITIONS];
+        for (int i = 0; i < POSITIONS; i++) {
+            events[i] = new TrafficEvent("entity-" + (i % 1024),
+                    40 + random.nextDouble() * AREA_DEG, -80 + random.nextDouble() * AREA_DEG, i);
+        }
+    }
+
+    @Benchmark
+    public void update() {
+        engine.update(events[next]);
+        next = (next + 1) & (POSITIONS - 1);
+    }
+}
@@ -0,0 +1,67 @@
+package com.badnetwork.trafficencoder.proximity;
+
+import com.badnetwork.benchmarks.support.NoopTransport;
+import com.badnetwork.trafficencoder.config.EncoderProperties;
+import com.badnetwork.trafficencoder.model.TrafficEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One entity update of the proximity grid: move it between cells, compare it with its neighbours and
+ * publish any ENTER/EXIT. Entities random-walk over an area sized for a few neighbours each, one second of
+ * event time per pass over the fleet, i.e. 1 Hz per entity.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProximityDetectorBenchmark {
+
+    private static final double STEP_DEG = 0.0001;
+
+    @Param({"10000", "100000"})
+    public int entities;
+
+    /** Entities per square kilometre; at the default 50 m threshold, 250 gives about two in range. */
+    @Param({"250"})
+    public int density;
+
+    private ProximityDetector detector;
+    private TrafficEvent[] events;
+    private final SplittableRandom random = new SplittableRandom(42);
+    private int next;
+    private long timestamp = 1_700_000_000_000L;
+
+    @Setup
+    public void setUp() {
+        EncoderProperties properties = new EncoderProperties();
+        properties.getProximity().setEnabled(true);
+        detector = new ProximityDetector(properties, new NoopTransport(), new ObjectMapper());
+
+        double sideDeg = Math.sqrt((double) entities / density) * 1000 / ProximityGrid.METERS_PER_DEGREE;
+        events = new TrafficEvent[entities];
+        for (int i = 0; i < entities; i++) {
+            events[i] = new TrafficEvent("entity-" + i,
+                    40.0 + random.nextDouble() * sideDeg, -74.0 + random.nextDouble() * sideDeg, timestamp);
+            detector.update(events[i]);
+        }
+    }
+
+    @Benchmark
+    public void update() {
+        TrafficEvent event = events[next];
+        event.setLat(event.getLat() + (random.nextDouble() - 0.5) * STEP_DEG);
+        event.setLon(event.getLon() + (random.nextDouble() - 0.5) * STEP_DEG);
+        event.setTimestamp(timestamp);
+        detector.update(event);
+        if (++next == events.length) {
+            next = 0;
+            timestamp += 1000;
+        }
+    }
+}
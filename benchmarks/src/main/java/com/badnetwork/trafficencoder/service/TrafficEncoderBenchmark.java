@@ -0,0 +1,89 @@
+package com.badnetwork.trafficencoder.service;
+
+import com.badnetwork.benchmarks.support.NoopTransport;
+import com.badnetwork.trafficencoder.config.EncoderProperties;
+import com.badnetwork.trafficencoder.geofence.GeofenceEngine;
+import com.badnetwork.trafficencoder.model.DeltaTrafficEvent;
+import com.badnetwork.trafficencoder.model.TrafficEvent;
+import com.badnetwork.trafficencoder.proximity.ProximityDetector;
+import com.badnetwork.trafficencoder.state.InMemoryEntityStateStore;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Event (de)serialization and the encoder's per-message path: parse, republish, and compute the delta
+ * against the last position in its entity map.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TrafficEncoderBenchmark {
+
+    /** Distinct entities cycled through, i.e. the size of the encoder's entity map. */
+    @Param({"100", "100000"})
+    public int entities;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private TrafficEncoderService encoderService;
+    private String[] messages;
+    private TrafficEvent event;
+    private DeltaTrafficEvent delta;
+    private String eventJson;
+    private String deltaJson;
+    private int next;
+
+    @Setup
+    public void setUp() throws JsonProcessingException {
+        EncoderProperties properties = new EncoderProperties();
+        NoopTransport transport = new NoopTransport();
+        encoderService = new TrafficEncoderService(properties, transport, objectMapper, new InMemoryEntityStateStore(),
+                new ProximityDetector(properties, transport, objectMapper),
+                new GeofenceEngine(properties, transport, objectMapper));
+        messages = new String[entities];
+        for (int i = 0; i < entities; i++) {
+            messages[i] = objectMapper.writeValueAsString(
+                    new TrafficEvent("entity-" + i, 40.0 + i * 1e-5, -74.0 - i * 1e-5, 1_700_000_000_000L + i));
+        }
+        // Fill the entity map so measured messages compute deltas rather than introduce entities
+        for (String message : messages) {
+            encoderService.consume(message);
+        }
+
+        event = new TrafficEvent("entity-42", 40.001234, -74.005678, 1_700_000_000_000L);
+        delta = new DeltaTrafficEvent("entity-42", 0.0000123, -0.0000456, 1_700_000_000_000L, false, null, null);
+        eventJson = objectMapper.writeValueAsString(event);
+        deltaJson = objectMapper.writeValueAsString(delta);
+    }
+
+    @Benchmark
+    public String serializeTrafficEvent() throws JsonProcessingException {
+        return objectMapper.writeValueAsString(event);
+    }
+
+    @Benchmark
+    public TrafficEvent parseTrafficEvent() throws JsonProcessingException {
+        return objectMapper.readValue(eventJson, TrafficEvent.class);
+    }
+
+    @Benchmark
+    public String serializeDeltaTrafficEvent() throws JsonProcessingException {
+        return objectMapper.writeValueAsString(delta);
+    }
+
+    @Benchmark
+    public DeltaTrafficEvent parseDeltaTrafficEvent() throws JsonProcessingException {
+        return objectMapper.readValue(deltaJson, DeltaTrafficEvent.class);
+    }
+
+    @Benchmark
+    public void encode() {
+        encoderService.consume(messages[next]);
+        next = next + 1 == messages.length ? 0 : next + 1;
+    }
+}
@@ -0,0 +1,72 @@
+package com.badnetwork.trafficencoder.state;
+
+import com.badnetwork.trafficencoder.config.EncoderProperties;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * The encoder's per-message state access, a get and a put of one entity's position. Nine in ten accesses
+ * go to a working set the size of the mapped backend's cache, the rest to any of `entities`.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EntityStateStoreBenchmark {
+
+    @Param({"memory", "mapped"})
+    public String backend;
+
+    @Param({"1000000"})
+    public int entities;
+
+    @Param({"100000"})
+    public int cacheEntries;
+
+    private EntityStateStore store;
+    private Path directory;
+    private String[] ids;
+    private final SplittableRandom random = new SplittableRandom(42);
+
+    @Setup
+    public void setUp() throws IOException {
+        EncoderProperties properties = new EncoderProperties();
+        directory = Files.createTempDirectory("entity-state");
+        properties.getState().setDirectory(directory.toString());
+        properties.getState().setCacheEntries(cacheEntries);
+        store = backend.equals("mapped") ? new MappedEntityStateStore(properties) : new InMemoryEntityStateStore();
+
+        ids = new String[entities];
+        for (int i = 0; i < entities; i++) {
+            ids[i] = "sim-" + Integer.toHexString(i * 0x9E3779B1) + "-" + i;
+            store.put(ids[i], new Position(40 + i * 1e-7, -74 - i * 1e-7, i));
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        if (store instanceof MappedEntityStateStore mapped) {
+            mapped.close();
+        }
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public Position getAndPut() {
+        String id = ids[random.nextInt(10) == 0 ? random.nextInt(entities) : random.nextInt(cacheEntries)];
+        Position last = store.get(id);
+        store.put(id, new Position(last.lat() + 1e-6, last.lon() - 1e-6, last.timestamp() + 1000));
+        return last;
+    }
+}
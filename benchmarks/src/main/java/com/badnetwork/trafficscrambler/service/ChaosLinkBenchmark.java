@@ -0,0 +1,87 @@
+package com.badnetwork.trafficscrambler.service;
+
+import com.badnetwork.benchmarks.support.NoopTransport;
+import com.badnetwork.trafficscrambler.config.ScramblerProperties;
+import com.badnetwork.trafficscrambler.model.ChaosConfig;
+import com.badnetwork.trafficscrambler.model.DeltaTrafficEvent;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A link's per-message chaos decision, and the delay/reorder queue path with the queue overflowing
+ * under each {@link ChaosConfig.DropPolicy}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChaosLinkBenchmark {
+
+    private static final int BATCH = 1024;
+
+    @Param({"DROP_OLDEST", "DROP_NEWEST", "COALESCE_BY_ID"})
+    public ChaosConfig.DropPolicy dropPolicy;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private ChaosLink directLink;
+    private ChaosLink queuedLink;
+    private DeltaTrafficEvent[] events;
+    private String[] messages;
+    private int next;
+
+    @Setup
+    public void setUp() throws JsonProcessingException {
+        // Percentages are fractions: 5% lost, 1% corrupted, the rest sent
+        ChaosConfig direct = new ChaosConfig();
+        direct.setLossPercent(0.05);
+        direct.setCorruptCoordinatesPercent(0.01);
+        direct.setMaxCorruptionMeters(50);
+        direct.setDropPolicy(dropPolicy);
+        directLink = link(direct);
+
+        // Every message is delayed or reordered, and a release of a full batch overflows the queue
+        ChaosConfig queued = new ChaosConfig();
+        queued.setFixedLatencyMs(1);
+        queued.setOutOfOrderPercent(0.1);
+        queued.setMaxQueueSize(BATCH / 4);
+        queued.setDropPolicy(dropPolicy);
+        queuedLink = link(queued);
+
+        events = new DeltaTrafficEvent[BATCH];
+        messages = new String[BATCH];
+        for (int i = 0; i < BATCH; i++) {
+            // A few entities, so coalescing has duplicates to merge
+            events[i] = new DeltaTrafficEvent("entity-" + (i % 64), 1e-5, -1e-5, 1_700_000_000_000L + i, false, null, null);
+            messages[i] = objectMapper.writeValueAsString(events[i]);
+        }
+    }
+
+    private ChaosLink link(ChaosConfig config) {
+        ScramblerProperties.Link link = new ScramblerProperties.Link();
+        link.setSourceTopic("traffic-delta");
+        link.setChaosTopic("traffic-chaos");
+        link.setChaos(config);
+        return new ChaosLink("benchmark", link, new NoopTransport(), objectMapper, new Semaphore(Integer.MAX_VALUE));
+    }
+
+    @Benchmark
+    public void decide() {
+        directLink.process(events[next], messages[next]);
+        next = (next + 1) % BATCH;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void queueAndRelease() {
+        for (int i = 0; i < BATCH; i++) {
+            queuedLink.process(events[i], messages[i]);
+        }
+        queuedLink.processDelayedMessages(Long.MAX_VALUE);
+    }
+}
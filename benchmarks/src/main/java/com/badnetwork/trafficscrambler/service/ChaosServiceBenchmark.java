@@ -0,0 +1,69 @@
+package com.badnetwork.trafficscrambler.service;
+
+import com.badnetwork.benchmarks.support.NoopKafkaTemplate;
+import com.badnetwork.benchmarks.support.NoopTransport;
+import com.badnetwork.trafficscrambler.config.ScramblerProperties;
+import com.badnetwork.trafficscrambler.model.DeltaTrafficEvent;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The scrambler's per-record entry point: routing by topic and key prefix, parsing, and the link decision.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChaosServiceBenchmark {
+
+    /** Links sharing the source topic, told apart by key prefix. */
+    @Param({"1", "100"})
+    public int links;
+
+    private ChaosService chaosService;
+    private ConsumerRecord<String, String>[] records;
+    private int next;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setUp() throws JsonProcessingException {
+        ScramblerProperties properties = new ScramblerProperties();
+        properties.getKafka().setSourceTopic("traffic-delta");
+        properties.getKafka().setChaosTopic("traffic-chaos");
+        for (int i = 0; i < links; i++) {
+            ScramblerProperties.Link link = new ScramblerProperties.Link();
+            link.setSourceTopic("traffic-delta");
+            link.setChaosTopic("traffic-chaos");
+            link.setKeyPrefix("link" + i + "-");
+            properties.getLinks().put("link" + i, link);
+        }
+        ObjectMapper objectMapper = new ObjectMapper();
+        chaosService = new ChaosService(properties, new NoopKafkaTemplate(), new NoopTransport(), objectMapper, new KafkaListenerEndpointRegistry());
+
+        records = new ConsumerRecord[1024];
+        for (int i = 0; i < records.length; i++) {
+            String key = "link" + (i % links) + "-entity-" + i;
+            String value = objectMapper.writeValueAsString(
+                    new DeltaTrafficEvent(key, 1e-5, -1e-5, 1_700_000_000_000L + i, false, null, null));
+            records[i] = new ConsumerRecord<>("traffic-delta", 0, i, key, value);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        chaosService.stop();
+    }
+
+    @Benchmark
+    public void consume() {
+        chaosService.consume(records[next]);
+        next = (next + 1) & 1023;
+    }
+}
@@ -0,0 +1,40 @@
+package com.badnetwork.trafficsim.path;
+
+import com.badnetwork.trafficsim.config.TrafficProperties;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of one entity position, as computed for every entity on every simulator tick.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PathStrategyBenchmark {
+
+    @Param({"circle", "diamond"})
+    public String shape;
+
+    private PathStrategy strategy;
+    private int entityIndex;
+    private long time;
+
+    @Setup
+    public void setUp() {
+        TrafficProperties.Path path = new TrafficProperties.Path();
+        path.setShape(shape);
+        strategy = "diamond".equals(shape) ? new DiamondPathStrategy(path) : new CirclePathStrategy(path);
+        time = System.currentTimeMillis();
+    }
+
+    @Benchmark
+    public double[] position() {
+        entityIndex = (entityIndex + 1) & 1023;
+        time += 7;
+        return strategy.position(entityIndex, time);
+    }
+}
@@ -0,0 +1,11 @@
+#!/usr/bin/env bash
+# Builds every service and the harness, then runs one profile: ./run.sh --profile=lossy --duration-sec=120
+set -euo pipefail
+cd "$(dirname "$0")/.."
+
+for service in traffic-sim traffic-encoder traffic-scrambler traffic2ui e2e-harness; do
+  (cd "$service" && mvn -B -q package -DskipTests)
+done
+
+cd e2e-harness
+exec java -jar target/e2e-harness.jar "$@"
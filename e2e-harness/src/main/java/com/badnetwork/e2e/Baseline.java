@@ -0,0 +1,42 @@
+package com.badnetwork.e2e;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Limits a run of one profile must stay within; unset limits are not checked.
+ *
+ * @param minDeliveryRatio updates each WebSocket client receives per second, over events simulated per second
+ * @param maxP99Ms         per hop, as named by {@link HopTracker}
+ * @param maxGcPauseMs     longest single pause in any service
+ * @param maxHeapAfterGcMb highest post-GC heap occupancy in any service
+ */
+record Baseline(Double minDeliveryRatio, Map<String, Long> maxP99Ms, Double maxGcPauseMs, Long maxHeapAfterGcMb) {
+
+    List<String> violations(HarnessReport report) {
+        List<String> violations = new ArrayList<>();
+        if (minDeliveryRatio != null && report.deliveryRatio() < minDeliveryRatio) {
+            violations.add("delivery ratio %.3f below %.3f".formatted(report.deliveryRatio(), minDeliveryRatio));
+        }
+        if (maxP99Ms != null) {
+            maxP99Ms.forEach((hop, limit) -> {
+                LatencyHistogram.Summary latency = report.latencies().get(hop);
+                if (latency == null || latency.count() == 0) {
+                    violations.add(hop + " measured no latencies");
+                } else if (latency.p99Ms() > limit) {
+                    violations.add("%s p99 %dms above %dms".formatted(hop, latency.p99Ms(), limit));
+                }
+            });
+        }
+        report.gc().forEach((service, gc) -> {
+            if (maxGcPauseMs != null && gc.maxPauseMs() > maxGcPauseMs) {
+                violations.add("%s GC pause %.1fms above %.1fms".formatted(service, gc.maxPauseMs(), maxGcPauseMs));
+            }
+            if (maxHeapAfterGcMb != null && gc.heapAfterGcMaxMb() > maxHeapAfterGcMb) {
+                violations.add("%s heap after GC %dMB above %dMB".formatted(service, gc.heapAfterGcMaxMb(), maxHeapAfterGcMb));
+            }
+        });
+        return violations;
+    }
+}
@@ -0,0 +1,47 @@
+package com.badnetwork.e2e;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * GC pauses and heap occupancy of one service over the measurement window, parsed from its
+ * {@code -Xlog:gc} log.
+ *
+ * @param heapAfterGcMaxMb the highest heap occupancy left after a pause, i.e. the live set plus garbage
+ *                         the collector chose not to reclaim
+ */
+record GcStats(int pauses, double totalPauseMs, double maxPauseMs, long heapAfterGcMaxMb, long heapCommittedMaxMb) {
+
+    // [12.345s][info][gc] GC(7) Pause Young (Normal) (G1 Evacuation Pause) 24M->4M(256M) 3.456ms
+    private static final Pattern PAUSE = Pattern.compile(
+            "^\\[([\\d.]+)s].*GC\\(\\d+\\) Pause .*? (\\d+)M->(\\d+)M\\((\\d+)M\\) ([\\d.]+)ms");
+
+    /**
+     * @param sinceUptimeSec JVM uptime at which the measurement window started; earlier pauses are ignored
+     */
+    static GcStats parse(Path gcLog, double sinceUptimeSec) throws IOException {
+        List<String> lines = Files.exists(gcLog) ? Files.readAllLines(gcLog) : List.of();
+        int pauses = 0;
+        double total = 0;
+        double max = 0;
+        long heapAfter = 0;
+        long committed = 0;
+        for (String line : lines) {
+            Matcher m = PAUSE.matcher(line);
+            if (!m.find() || Double.parseDouble(m.group(1)) < sinceUptimeSec) {
+                continue;
+            }
+            double pauseMs = Double.parseDouble(m.group(5));
+            pauses++;
+            total += pauseMs;
+            max = Math.max(max, pauseMs);
+            heapAfter = Math.max(heapAfter, Long.parseLong(m.group(3)));
+            committed = Math.max(committed, Long.parseLong(m.group(4)));
+        }
+        return new GcStats(pauses, total, max, heapAfter, committed);
+    }
+}
@@ -0,0 +1,55 @@
+package com.badnetwork.e2e;
+
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Command line of the harness: {@code --name=value} pairs, all optional.
+ *
+ * @param entities          overrides the profile's entity count
+ * @param publishIntervalMs overrides the profile's publish interval
+ * @param baseline          file of per-profile baselines; the bundled baseline.json when null
+ */
+record HarnessOptions(
+        String profile,
+        Integer entities,
+        Long publishIntervalMs,
+        int warmupSec,
+        int durationSec,
+        int clients,
+        String heap,
+        Path servicesDir,
+        Path outputDir,
+        Path baseline
+) {
+
+    static HarnessOptions parse(String[] args) {
+        Map<String, String> values = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value but got " + arg);
+            }
+            int eq = arg.indexOf('=');
+            values.put(arg.substring(2, eq), arg.substring(eq + 1));
+        }
+        HarnessOptions options = new HarnessOptions(
+                values.getOrDefault("profile", "clean"),
+                values.containsKey("entities") ? Integer.valueOf(values.get("entities")) : null,
+                values.containsKey("publish-interval-ms") ? Long.valueOf(values.get("publish-interval-ms")) : null,
+                Integer.parseInt(values.getOrDefault("warmup-sec", "20")),
+                Integer.parseInt(values.getOrDefault("duration-sec", "60")),
+                Integer.parseInt(values.getOrDefault("clients", "2")),
+                values.getOrDefault("heap", "256m"),
+                Path.of(values.getOrDefault("services-dir", "..")),
+                Path.of(values.getOrDefault("output-dir", "target/e2e")),
+                values.containsKey("baseline") ? Path.of(values.get("baseline")) : null);
+        values.keySet().removeAll(Set.of("profile", "entities", "publish-interval-ms", "warmup-sec",
+                "duration-sec", "clients", "heap", "services-dir", "output-dir", "baseline"));
+        if (!values.isEmpty()) {
+            throw new IllegalArgumentException("Unknown option(s): " + values.keySet());
+        }
+        return options;
+    }
+}
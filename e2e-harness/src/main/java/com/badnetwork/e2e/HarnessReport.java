@@ -0,0 +1,34 @@
+package com.badnetwork.e2e;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Result of one run, written as JSON next to the services' logs.
+ *
+ * @param eventsPerSec records per second on each topic, and updates per second per WebSocket client
+ */
+record HarnessReport(
+        LoadProfile profile,
+        long durationSec,
+        int websocketClients,
+        double expectedEventsPerSec,
+        Map<String, Double> eventsPerSec,
+        double deliveryRatio,
+        Map<String, LatencyHistogram.Summary> latencies,
+        Map<String, GcStats> gc,
+        List<String> violations
+) {
+
+    @JsonProperty
+    boolean passed() {
+        return violations.isEmpty();
+    }
+
+    HarnessReport withViolations(List<String> violations) {
+        return new HarnessReport(profile, durationSec, websocketClients, expectedEventsPerSec, eventsPerSec,
+                deliveryRatio, latencies, gc, violations);
+    }
+}
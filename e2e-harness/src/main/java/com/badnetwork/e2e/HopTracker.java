@@ -0,0 +1,198 @@
+package com.badnetwork.e2e;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Follows each simulated event through the pipeline. Events are correlated across topics by entity id and
+ * original timestamp, which every stage carries through unchanged, and a hop's latency is the difference
+ * between the Kafka CreateTime of the record entering and the record leaving the stage; the last hop ends
+ * when a WebSocket client receives the update.
+ */
+final class HopTracker implements AutoCloseable {
+
+    static final String SIM = "traffic-sim";
+    static final String ENCODER = "traffic-encoder";
+    static final String SCRAMBLER = "traffic-scrambler";
+    static final String TRAFFIC2UI = "traffic2ui";
+    static final String END_TO_END = "end-to-end";
+
+    private static final Logger log = LoggerFactory.getLogger(HopTracker.class);
+    private static final long FORGET_AFTER_MS = 30_000;
+    private static final int EVENTS = 0;
+    private static final int DELTA = 1;
+    private static final int CHAOS = 2;
+
+    private final String[] topics;
+    private final KafkaConsumer<String, String> consumer;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Map<String, long[]> inFlight = new ConcurrentHashMap<>();
+    private final Map<String, LatencyHistogram> hops = new LinkedHashMap<>();
+    private final Map<String, AtomicLong> recordCounts = new LinkedHashMap<>();
+    private final AtomicLong delivered = new AtomicLong();
+    private final AtomicBoolean running = new AtomicBoolean(true);
+    private final Thread poller;
+    private long lastForgetMs = System.currentTimeMillis();
+
+    /**
+     * @param topics the events, delta and chaos topics, in pipeline order
+     */
+    HopTracker(String bootstrapServers, String... topics) {
+        this.topics = topics;
+        for (String hop : List.of(SIM, ENCODER, SCRAMBLER, TRAFFIC2UI, END_TO_END)) {
+            hops.put(hop, new LatencyHistogram());
+        }
+        for (String topic : topics) {
+            recordCounts.put(topic, new AtomicLong());
+        }
+
+        Properties props = new Properties();
+        props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        props.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        consumer = new KafkaConsumer<>(props);
+
+        List<TopicPartition> partitions = Arrays.stream(topics)
+                .flatMap(topic -> consumer.partitionsFor(topic).stream()
+                        .map(info -> new TopicPartition(topic, info.partition())))
+                .toList();
+        consumer.assign(partitions);
+        consumer.seekToEnd(partitions);
+        partitions.forEach(consumer::position);
+
+        poller = Thread.ofPlatform().name("hop-tracker").start(this::poll);
+    }
+
+    private void poll() {
+        try {
+            while (running.get()) {
+                for (ConsumerRecord<String, String> record : consumer.poll(Duration.ofMillis(100))) {
+                    onRecord(record);
+                }
+                forgetStale();
+            }
+        } catch (Exception e) {
+            if (running.get()) {
+                log.error("Hop tracker stopped: {}", e.getMessage(), e);
+            }
+        } finally {
+            consumer.close();
+        }
+    }
+
+    private void onRecord(ConsumerRecord<String, String> record) {
+        int stage = stageOf(record.topic());
+        recordCounts.get(record.topic()).incrementAndGet();
+        JsonNode event;
+        try {
+            event = objectMapper.readTree(record.value());
+        } catch (Exception e) {
+            return;
+        }
+        JsonNode id = event.get("id");
+        JsonNode timestamp = event.get("timestamp");
+        if (id == null || timestamp == null) {
+            return;
+        }
+
+        long eventTime = timestamp.asLong();
+        long[] times = inFlight.computeIfAbsent(key(id.asText(), eventTime), k -> new long[CHAOS + 1]);
+        times[stage] = record.timestamp();
+        switch (stage) {
+            case EVENTS -> hops.get(SIM).record(record.timestamp() - eventTime);
+            case DELTA -> recordHop(ENCODER, times[EVENTS], record.timestamp());
+            default -> recordHop(SCRAMBLER, times[DELTA], record.timestamp());
+        }
+    }
+
+    private int stageOf(String topic) {
+        for (int i = 0; i < topics.length; i++) {
+            if (topics[i].equals(topic)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException(topic);
+    }
+
+    private void recordHop(String hop, long enteredMs, long leftMs) {
+        // Unknown when the previous stage's record was produced before the tracker started
+        if (enteredMs > 0) {
+            hops.get(hop).record(leftMs - enteredMs);
+        }
+    }
+
+    private void forgetStale() {
+        long now = System.currentTimeMillis();
+        if (now - lastForgetMs < 1000) {
+            return;
+        }
+        lastForgetMs = now;
+        inFlight.keySet().removeIf(key -> now - Long.parseLong(key.substring(key.lastIndexOf('|') + 1)) > FORGET_AFTER_MS);
+    }
+
+    /**
+     * Records an update a WebSocket client received at {@code receivedMs}.
+     */
+    void delivered(String id, long eventTime, long receivedMs) {
+        delivered.incrementAndGet();
+        hops.get(END_TO_END).record(receivedMs - eventTime);
+        long[] times = inFlight.get(key(id, eventTime));
+        if (times != null) {
+            recordHop(TRAFFIC2UI, times[CHAOS], receivedMs);
+        }
+    }
+
+    private static String key(String id, long eventTime) {
+        return id + '|' + eventTime;
+    }
+
+    /**
+     * Starts the measurement window, dropping everything recorded during warm-up.
+     */
+    void reset() {
+        hops.values().forEach(LatencyHistogram::reset);
+        recordCounts.values().forEach(count -> count.set(0));
+        delivered.set(0);
+    }
+
+    Map<String, LatencyHistogram.Summary> latencies() {
+        Map<String, LatencyHistogram.Summary> summaries = new LinkedHashMap<>();
+        hops.forEach((hop, histogram) -> summaries.put(hop, histogram.summary()));
+        return summaries;
+    }
+
+    Map<String, Long> recordCounts() {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        recordCounts.forEach((topic, count) -> counts.put(topic, count.get()));
+        return counts;
+    }
+
+    long deliveredCount() {
+        return delivered.get();
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        running.set(false);
+        consumer.wakeup();
+        poller.join(5000);
+    }
+}
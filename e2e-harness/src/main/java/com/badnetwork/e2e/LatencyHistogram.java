@@ -0,0 +1,61 @@
+package com.badnetwork.e2e;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Millisecond-resolution latency histogram that many threads record into without locking. Latencies
+ * above {@value #MAX_MS}ms are counted in the last bucket.
+ */
+final class LatencyHistogram {
+
+    private static final int MAX_MS = 60_000;
+
+    private final AtomicLongArray counts = new AtomicLongArray(MAX_MS + 1);
+
+    void record(long latencyMs) {
+        counts.incrementAndGet((int) Math.max(0, Math.min(MAX_MS, latencyMs)));
+    }
+
+    void reset() {
+        for (int i = 0; i <= MAX_MS; i++) {
+            counts.set(i, 0);
+        }
+    }
+
+    Summary summary() {
+        long[] snapshot = new long[MAX_MS + 1];
+        long total = 0;
+        long max = 0;
+        for (int i = 0; i <= MAX_MS; i++) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+            if (snapshot[i] > 0) {
+                max = i;
+            }
+        }
+        return new Summary(total,
+                percentile(snapshot, total, 0.50),
+                percentile(snapshot, total, 0.95),
+                percentile(snapshot, total, 0.99),
+                percentile(snapshot, total, 0.999),
+                max);
+    }
+
+    private static long percentile(long[] snapshot, long total, double quantile) {
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(quantile * total);
+        long seen = 0;
+        for (int i = 0; i < snapshot.length; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return i;
+            }
+        }
+        return MAX_MS;
+    }
+
+    record Summary(long count, long p50Ms, long p95Ms, long p99Ms, long p999Ms, long maxMs) {
+    }
+}
@@ -0,0 +1,204 @@
+package com.badnetwork.e2e;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.kafka.test.EmbeddedKafkaKraftBroker;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runs traffic-sim, traffic-encoder, traffic-scrambler and traffic2ui from their jars against an embedded
+ * KRaft broker, drives one load profile through them with WebSocket clients attached, and reports
+ * throughput, per-hop latency and per-service GC. Exits 1 when the profile's baseline is exceeded.
+ */
+public final class LoadHarness {
+
+    private static final Logger log = LoggerFactory.getLogger(LoadHarness.class);
+    private static final String EVENTS_TOPIC = "traffic-events";
+    private static final String ORIGINAL_TOPIC = "traffic-original";
+    private static final String DELTA_TOPIC = "traffic-delta";
+    private static final String CHAOS_TOPIC = "traffic-chaos";
+    private static final int PARTITIONS = 3;
+    private static final Duration START_TIMEOUT = Duration.ofMinutes(2);
+
+    private final HarnessOptions options;
+    private final LoadProfile profile;
+    private final Baseline baseline;
+    private final ObjectMapper objectMapper;
+    private final Map<String, ServiceProcess> services = new LinkedHashMap<>();
+
+    private LoadHarness(HarnessOptions options, LoadProfile profile, Baseline baseline, ObjectMapper objectMapper) {
+        this.options = options;
+        this.profile = profile;
+        this.baseline = baseline;
+        this.objectMapper = objectMapper;
+    }
+
+    public static void main(String[] args) {
+        try {
+            HarnessOptions options = HarnessOptions.parse(args);
+            ObjectMapper objectMapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+            LoadProfile profile = loadProfile(objectMapper, options);
+            Baseline baseline = loadBaseline(objectMapper, options);
+
+            HarnessReport report = new LoadHarness(options, profile, baseline, objectMapper).run();
+            report.violations().forEach(violation -> log.error("Baseline exceeded: {}", violation));
+            System.exit(report.passed() ? 0 : 1);
+        } catch (Exception e) {
+            log.error("Harness failed: {}", e.getMessage(), e);
+            System.exit(2);
+        }
+    }
+
+    private static LoadProfile loadProfile(ObjectMapper objectMapper, HarnessOptions options) throws IOException {
+        Map<String, LoadProfile> profiles;
+        try (InputStream in = LoadHarness.class.getResourceAsStream("/profiles.json")) {
+            profiles = objectMapper.readValue(in, new TypeReference<>() { });
+        }
+        LoadProfile profile = profiles.get(options.profile());
+        if (profile == null) {
+            throw new IllegalArgumentException("Unknown profile " + options.profile() + "; one of " + profiles.keySet());
+        }
+        return new LoadProfile(options.profile(), profile.entities(), profile.publishIntervalMs(), profile.chaos())
+                .withLoad(options.entities(), options.publishIntervalMs());
+    }
+
+    private static Baseline loadBaseline(ObjectMapper objectMapper, HarnessOptions options) throws IOException {
+        TypeReference<Map<String, Baseline>> type = new TypeReference<>() { };
+        Map<String, Baseline> baselines;
+        if (options.baseline() != null) {
+            baselines = objectMapper.readValue(options.baseline().toFile(), type);
+        } else {
+            try (InputStream in = LoadHarness.class.getResourceAsStream("/baseline.json")) {
+                baselines = objectMapper.readValue(in, type);
+            }
+        }
+        return baselines.getOrDefault(options.profile(), new Baseline(null, null, null, null));
+    }
+
+    private HarnessReport run() throws Exception {
+        EmbeddedKafkaKraftBroker broker = new EmbeddedKafkaKraftBroker(1, PARTITIONS,
+                EVENTS_TOPIC, ORIGINAL_TOPIC, DELTA_TOPIC, CHAOS_TOPIC);
+        broker.afterPropertiesSet();
+        String bootstrapServers = broker.getBrokersAsString();
+        log.info("Embedded broker at {}; profile {} at {} events/s", bootstrapServers, profile.name(),
+                profile.expectedEventsPerSec());
+
+        try {
+            int scramblerPort = freePort();
+            int traffic2uiPort = freePort();
+
+            // Downstream first, so no stage starts producing before its consumer is listening
+            startService("traffic2ui", bootstrapServers,
+                    List.of("--server.port=" + traffic2uiPort),
+                    Map.of("KAFKA_TOPIC", CHAOS_TOPIC));
+            startService("traffic-scrambler", bootstrapServers,
+                    List.of("--server.port=" + scramblerPort), Map.of());
+            startService("traffic-encoder", bootstrapServers, List.of(), Map.of());
+            for (ServiceProcess service : services.values()) {
+                service.awaitStarted(START_TIMEOUT);
+            }
+            applyChaos(scramblerPort);
+
+            try (HopTracker tracker = new HopTracker(bootstrapServers, EVENTS_TOPIC, DELTA_TOPIC, CHAOS_TOPIC);
+                 WebSocketClients clients = new WebSocketClients(tracker)) {
+                clients.connect(URI.create("ws://localhost:" + traffic2uiPort + "/traffic"), options.clients());
+
+                startService("traffic-sim", bootstrapServers, List.of(
+                        "--traffic.entity-count=" + profile.entities(),
+                        "--traffic.publish-interval-ms=" + profile.publishIntervalMs()), Map.of());
+                services.get("traffic-sim").awaitStarted(START_TIMEOUT);
+
+                log.info("Warming up for {}s", options.warmupSec());
+                Thread.sleep(options.warmupSec() * 1000L);
+                tracker.reset();
+                clients.reset();
+                long measureStartMs = System.currentTimeMillis();
+
+                log.info("Measuring for {}s", options.durationSec());
+                Thread.sleep(options.durationSec() * 1000L);
+                return report(tracker, clients, measureStartMs);
+            }
+        } finally {
+            for (ServiceProcess service : services.values()) {
+                service.close();
+            }
+            broker.destroy();
+        }
+    }
+
+    private void startService(String name, String bootstrapServers, List<String> args, Map<String, String> env)
+            throws IOException {
+        List<String> allArgs = new ArrayList<>(args);
+        allArgs.add("--spring.kafka.bootstrap-servers=" + bootstrapServers);
+        // The services ship with Kafka client debug logging, which would dominate what is measured
+        allArgs.add("--logging.level.org.apache.kafka=WARN");
+        allArgs.add("--logging.level.org.springframework.kafka=WARN");
+        services.put(name, ServiceProcess.start(name,
+                options.servicesDir().resolve(name),
+                options.outputDir().resolve(profile.name()).resolve(name),
+                options.heap(), allArgs, env));
+    }
+
+    private void applyChaos(int scramblerPort) throws IOException, InterruptedException {
+        HttpResponse<String> response = HttpClient.newHttpClient().send(
+                HttpRequest.newBuilder(URI.create("http://localhost:" + scramblerPort + "/chaos"))
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(profile.chaos())))
+                        .build(),
+                HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() / 100 != 2) {
+            throw new IllegalStateException("Scrambler rejected chaos profile: " + response.statusCode() + " " + response.body());
+        }
+        log.info("Applied chaos {}", profile.chaos());
+    }
+
+    private HarnessReport report(HopTracker tracker, WebSocketClients clients, long measureStartMs) throws IOException {
+        double seconds = (System.currentTimeMillis() - measureStartMs) / 1000.0;
+        Map<String, Double> eventsPerSec = new LinkedHashMap<>();
+        tracker.recordCounts().forEach((topic, count) -> eventsPerSec.put(topic, count / seconds));
+        double deliveredPerClient = tracker.deliveredCount() / seconds / Math.max(1, clients.size());
+        eventsPerSec.put("websocket-per-client", deliveredPerClient);
+        eventsPerSec.put("websocket-frames-per-client", clients.frameCount() / seconds / Math.max(1, clients.size()));
+
+        Map<String, GcStats> gc = new LinkedHashMap<>();
+        for (ServiceProcess service : services.values()) {
+            if (!service.isAlive()) {
+                throw new IllegalStateException(service.name() + " exited during the run");
+            }
+            gc.put(service.name(), service.gcStatsSince(measureStartMs));
+        }
+
+        HarnessReport report = new HarnessReport(profile, options.durationSec(), clients.size(),
+                profile.expectedEventsPerSec(), eventsPerSec, deliveredPerClient / profile.expectedEventsPerSec(),
+                tracker.latencies(), gc, List.of());
+        report = report.withViolations(baseline.violations(report));
+
+        Path reportFile = options.outputDir().resolve(profile.name()).resolve("report.json");
+        objectMapper.writeValue(reportFile.toFile(), report);
+        log.info("Report written to {}:\n{}", reportFile, objectMapper.writeValueAsString(report));
+        return report;
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
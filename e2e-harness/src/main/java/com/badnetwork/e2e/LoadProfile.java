@@ -0,0 +1,22 @@
+package com.badnetwork.e2e;
+
+import java.util.Map;
+
+/**
+ * A load to drive through the pipeline and the chaos the scrambler applies to it.
+ *
+ * @param chaos the scrambler's ChaosConfig, posted to its /chaos endpoint as is
+ */
+record LoadProfile(String name, int entities, long publishIntervalMs, Map<String, Object> chaos) {
+
+    double expectedEventsPerSec() {
+        return entities * 1000.0 / publishIntervalMs;
+    }
+
+    LoadProfile withLoad(Integer entities, Long publishIntervalMs) {
+        return new LoadProfile(name,
+                entities != null ? entities : this.entities,
+                publishIntervalMs != null ? publishIntervalMs : this.publishIntervalMs,
+                chaos);
+    }
+}
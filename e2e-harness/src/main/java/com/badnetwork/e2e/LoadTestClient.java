@@ -0,0 +1,270 @@
+package com.badnetwork.e2e;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.WebSocket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Opens N WebSocket connections to an already running traffic2ui and reports its fan-out delay and heap per
+ * connection. Every connection takes the unfiltered feed, so they all receive the same live frames: a
+ * frame's fan-out delay on a connection is how long after the first connection to receive it that one
+ * did, which is traffic2ui's own delivery cost. End-to-end latency (simulated timestamp to receipt) is
+ * reported beside it but spans the whole pipeline. Each connection's on-connect snapshot is not counted.
+ * Runs from the harness jar:
+ * <pre>
+ * java -cp target/e2e-harness.jar -Dloader.main=com.badnetwork.e2e.LoadTestClient \
+ *     org.springframework.boot.loader.launch.PropertiesLauncher \
+ *     --url=ws://localhost:7990/traffic --connections=10000 --duration-sec=60 --ramp-per-sec=1000
+ * </pre>
+ */
+public final class LoadTestClient {
+
+    private static final Logger log = LoggerFactory.getLogger(LoadTestClient.class);
+    private static final long FORGET_AFTER_MS = 30_000;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpClient httpClient = HttpClient.newHttpClient();
+    private final LatencyHistogram fanOut = new LatencyHistogram();
+    private final LatencyHistogram endToEnd = new LatencyHistogram();
+    // First receipt of each live frame by any connection, keyed by the frame's length and hash
+    private final Map<Long, Long> firstReceived = new ConcurrentHashMap<>();
+    private final AtomicLong frames = new AtomicLong();
+    private final AtomicLong snapshotFrames = new AtomicLong();
+    private final AtomicLong updates = new AtomicLong();
+    private final AtomicInteger open = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parse(args);
+        new LoadTestClient().run(
+                options.getOrDefault("url", "ws://localhost:7990/traffic"),
+                options.getOrDefault("summary-url", "http://localhost:7990/sessions/summary"),
+                Integer.parseInt(options.getOrDefault("connections", "1000")),
+                Integer.parseInt(options.getOrDefault("ramp-per-sec", "500")),
+                Integer.parseInt(options.getOrDefault("duration-sec", "60")));
+    }
+
+    private static Map<String, String> parse(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (arg.startsWith("--") && arg.contains("=")) {
+                options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+            }
+        }
+        return options;
+    }
+
+    private void run(String url, String summaryUrl, int connections, int rampPerSec, int durationSec) throws Exception {
+        Summary baseline = sampleSummary(summaryUrl);
+        long clientHeapBefore = usedHeap();
+
+        List<WebSocket> sockets = new ArrayList<>(connections);
+        long rampPauseNanos = 1_000_000_000L / Math.max(1, rampPerSec);
+        for (int i = 0; i < connections; i++) {
+            try {
+                sockets.add(httpClient.newWebSocketBuilder()
+                        .connectTimeout(Duration.ofSeconds(10))
+                        .buildAsync(URI.create(url), new Listener())
+                        .join());
+                open.incrementAndGet();
+            } catch (Exception e) {
+                failed.incrementAndGet();
+            }
+            Thread.sleep(rampPauseNanos / 1_000_000, (int) (rampPauseNanos % 1_000_000));
+        }
+        log.info("Connected {}/{} ({} failed)", open.get(), connections, failed.get());
+
+        // Latency is measured only once every connection is up
+        reset();
+        for (int second = 1; second <= durationSec; second++) {
+            Thread.sleep(1000);
+            if (second % 10 == 0 || second == durationSec) {
+                LatencyHistogram.Summary delay = fanOut.summary();
+                log.info("{}s open={} frames={} updates={} fan-out p50={}ms p95={}ms p99={}ms",
+                        second, open.get(), frames.get(), updates.get(), delay.p50Ms(), delay.p95Ms(), delay.p99Ms());
+                long forgetBefore = System.currentTimeMillis() - FORGET_AFTER_MS;
+                firstReceived.values().removeIf(receivedMs -> receivedMs < forgetBefore);
+            }
+        }
+
+        Summary loaded = sampleSummary(summaryUrl);
+        long clientHeapPerConnection = (usedHeap() - clientHeapBefore) / Math.max(1, open.get());
+        if (baseline != null && loaded != null) {
+            int added = Math.max(1, loaded.sessions() - baseline.sessions());
+            long heapAdded = loaded.heapUsedBytes() - baseline.heapUsedBytes();
+            log.info("Server sessions {}, heap {} KB added, ~{} bytes per connection",
+                    loaded.sessions(), heapAdded / 1024, heapAdded / added);
+        }
+        log.info("Client ~{} bytes per connection", clientHeapPerConnection);
+        LatencyHistogram.Summary delay = fanOut.summary();
+        LatencyHistogram.Summary total = endToEnd.summary();
+        log.info("Fan-out delay p50={}ms p95={}ms p99={}ms max={}ms over {} frames ({} snapshot frames not counted)",
+                delay.p50Ms(), delay.p95Ms(), delay.p99Ms(), delay.maxMs(), frames.get(), snapshotFrames.get());
+        log.info("End-to-end latency, whole pipeline: p50={}ms p95={}ms p99={}ms max={}ms",
+                total.p50Ms(), total.p95Ms(), total.p99Ms(), total.maxMs());
+
+        sockets.forEach(socket -> socket.sendClose(WebSocket.NORMAL_CLOSURE, "done"));
+    }
+
+    /**
+     * Heap readings move with garbage collection, so the lowest of a few samples is taken.
+     */
+    private Summary sampleSummary(String summaryUrl) {
+        Summary lowest = null;
+        for (int i = 0; i < 5; i++) {
+            try {
+                HttpResponse<String> response = httpClient.send(
+                        HttpRequest.newBuilder(URI.create(summaryUrl)).GET().build(), HttpResponse.BodyHandlers.ofString());
+                JsonNode body = objectMapper.readTree(response.body());
+                Summary summary = new Summary(body.path("sessions").asInt(), body.path("heapUsedBytes").asLong());
+                if (lowest == null || summary.heapUsedBytes() < lowest.heapUsedBytes()) {
+                    lowest = summary;
+                }
+                Thread.sleep(200);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return lowest;
+            } catch (Exception e) {
+                log.warn("Could not read {}: {}", summaryUrl, e.getMessage());
+                return lowest;
+            }
+        }
+        return lowest;
+    }
+
+    private static long usedHeap() {
+        System.gc();
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private void reset() {
+        fanOut.reset();
+        endToEnd.reset();
+        frames.set(0);
+        snapshotFrames.set(0);
+        updates.set(0);
+    }
+
+    /**
+     * Snapshot entries are plain absolute positions no newer than the connection: no delta, no raw
+     * position and no new-entity flag. A connection's frames are snapshot frames until one is not.
+     */
+    private static boolean isSnapshot(JsonNode frame, long connectedMs) {
+        for (JsonNode update : frame) {
+            if (!update.has("lat") || update.has("rawLat") || update.path("newEntity").asBoolean()
+                    || update.path("deltaLat").asDouble() != 0 || update.path("deltaLong").asDouble() != 0
+                    || update.path("timestamp").asLong() > connectedMs) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private final class Listener implements WebSocket.Listener {
+
+        private final StringBuilder partial = new StringBuilder();
+        private final ByteArrayOutputStream partialBinary = new ByteArrayOutputStream();
+        private final long connectedMs = System.currentTimeMillis();
+        private final AtomicBoolean closed = new AtomicBoolean();
+        private boolean live;
+
+        @Override
+        public CompletionStage<?> onText(WebSocket webSocket, CharSequence data, boolean last) {
+            partial.append(data);
+            if (last) {
+                onFrame(partial.toString(), System.currentTimeMillis());
+                partial.setLength(0);
+            }
+            webSocket.request(1);
+            return null;
+        }
+
+        /**
+         * The default json-binary format: the same JSON as UTF-8 in binary frames.
+         */
+        @Override
+        public CompletionStage<?> onBinary(WebSocket webSocket, ByteBuffer data, boolean last) {
+            byte[] bytes = new byte[data.remaining()];
+            data.get(bytes);
+            partialBinary.writeBytes(bytes);
+            if (last) {
+                onFrame(partialBinary.toString(StandardCharsets.UTF_8), System.currentTimeMillis());
+                partialBinary.reset();
+            }
+            webSocket.request(1);
+            return null;
+        }
+
+        private void onFrame(String text, long receivedMs) {
+            JsonNode frame;
+            try {
+                frame = objectMapper.readTree(text);
+            } catch (Exception e) {
+                return;
+            }
+            // Other JSON frames (e.g. cell counts) are not entity updates
+            if (!frame.isArray() || frame.isEmpty()) {
+                return;
+            }
+            if (!live && isSnapshot(frame, connectedMs)) {
+                snapshotFrames.incrementAndGet();
+                return;
+            }
+            live = true;
+
+            long key = (long) text.length() << 32 | (text.hashCode() & 0xFFFFFFFFL);
+            Long first = firstReceived.putIfAbsent(key, receivedMs);
+            fanOut.record(first == null ? 0 : receivedMs - first);
+            long newest = 0;
+            for (JsonNode update : frame) {
+                newest = Math.max(newest, update.path("timestamp").asLong());
+            }
+            endToEnd.record(receivedMs - newest);
+            frames.incrementAndGet();
+            updates.addAndGet(frame.size());
+        }
+
+        @Override
+        public CompletionStage<?> onClose(WebSocket webSocket, int statusCode, String reason) {
+            closed();
+            return null;
+        }
+
+        @Override
+        public void onError(WebSocket webSocket, Throwable error) {
+            failed.incrementAndGet();
+            closed();
+        }
+
+        // onError may be followed by onClose for the same connection
+        private void closed() {
+            if (closed.compareAndSet(false, true)) {
+                open.decrementAndGet();
+            }
+        }
+    }
+
+    private record Summary(int sessions, long heapUsedBytes) {
+    }
+}
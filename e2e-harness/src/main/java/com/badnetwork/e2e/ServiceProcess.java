@@ -0,0 +1,117 @@
+package com.badnetwork.e2e;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * One service running from its packaged jar in a child JVM, with its console output and GC log written to
+ * its own working directory.
+ */
+final class ServiceProcess implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(ServiceProcess.class);
+    private static final String STARTED_MARKER = "Started ";
+
+    private final String name;
+    private final Path workDir;
+    private final Process process;
+    private final long startedAtMs;
+
+    private ServiceProcess(String name, Path workDir, Process process, long startedAtMs) {
+        this.name = name;
+        this.workDir = workDir;
+        this.process = process;
+        this.startedAtMs = startedAtMs;
+    }
+
+    /**
+     * @param serviceDir the service's Maven module; its jar is looked up under target/
+     */
+    static ServiceProcess start(String name, Path serviceDir, Path workDir, String heap,
+                                List<String> args, Map<String, String> env) throws IOException {
+        Path jar = findJar(serviceDir);
+        Files.createDirectories(workDir);
+        Files.deleteIfExists(workDir.resolve("gc.log"));
+
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.add("-Xmx" + heap);
+        command.add("-Xlog:gc:file=gc.log:uptime,level,tags");
+        command.add("-jar");
+        command.add(jar.toAbsolutePath().toString());
+        command.addAll(args);
+
+        ProcessBuilder builder = new ProcessBuilder(command)
+                .directory(workDir.toFile())
+                .redirectErrorStream(true)
+                .redirectOutput(workDir.resolve("service.log").toFile());
+        builder.environment().putAll(env);
+
+        log.info("Starting {} from {}", name, jar);
+        return new ServiceProcess(name, workDir, builder.start(), System.currentTimeMillis());
+    }
+
+    private static Path findJar(Path serviceDir) throws IOException {
+        Path target = serviceDir.resolve("target");
+        if (!Files.isDirectory(target)) {
+            throw new IllegalStateException("No build of " + serviceDir + "; run mvn package in it first");
+        }
+        try (Stream<Path> files = Files.list(target)) {
+            return files.filter(p -> p.getFileName().toString().endsWith(".jar"))
+                    .findFirst()
+                    .orElseThrow(() -> new IllegalStateException("No jar in " + target));
+        }
+    }
+
+    /**
+     * Waits for Spring Boot's "Started ..." line in the service's output.
+     */
+    void awaitStarted(Duration timeout) throws IOException, InterruptedException {
+        Path output = workDir.resolve("service.log");
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (System.nanoTime() < deadline) {
+            if (!process.isAlive()) {
+                throw new IllegalStateException(name + " exited with " + process.exitValue() + "; see " + output);
+            }
+            if (Files.exists(output) && Files.readString(output).contains(STARTED_MARKER)) {
+                log.info("{} started", name);
+                return;
+            }
+            Thread.sleep(250);
+        }
+        throw new IllegalStateException(name + " did not start within " + timeout + "; see " + output);
+    }
+
+    String name() {
+        return name;
+    }
+
+    boolean isAlive() {
+        return process.isAlive();
+    }
+
+    /**
+     * @return GC activity since the given wall-clock time
+     */
+    GcStats gcStatsSince(long sinceMs) throws IOException {
+        return GcStats.parse(workDir.resolve("gc.log"), Math.max(0, sinceMs - startedAtMs) / 1000.0);
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        process.destroy();
+        if (!process.waitFor(15, TimeUnit.SECONDS)) {
+            process.destroyForcibly();
+        }
+    }
+}
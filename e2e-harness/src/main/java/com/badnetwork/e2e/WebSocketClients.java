@@ -0,0 +1,126 @@
+package com.badnetwork.e2e;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.WebSocket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * WebSocket clients subscribed to traffic2ui's JSON feed, reporting every update they receive to the
+ * {@link HopTracker}.
+ */
+final class WebSocketClients implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(WebSocketClients.class);
+
+    private final HopTracker tracker;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpClient httpClient = HttpClient.newHttpClient();
+    private final List<WebSocket> sockets = new ArrayList<>();
+    private final AtomicLong frames = new AtomicLong();
+
+    WebSocketClients(HopTracker tracker) {
+        this.tracker = tracker;
+    }
+
+    void connect(URI uri, int count) throws Exception {
+        for (int i = 0; i < count; i++) {
+            sockets.add(httpClient.newWebSocketBuilder()
+                    .buildAsync(uri, new Listener())
+                    .get(10, TimeUnit.SECONDS));
+        }
+        log.info("Connected {} WebSocket client(s) to {}", count, uri);
+    }
+
+    int size() {
+        return sockets.size();
+    }
+
+    void reset() {
+        frames.set(0);
+    }
+
+    long frameCount() {
+        return frames.get();
+    }
+
+    private void onFrame(String text, long receivedMs) {
+        frames.incrementAndGet();
+        JsonNode frame;
+        try {
+            frame = objectMapper.readTree(text);
+        } catch (Exception e) {
+            return;
+        }
+        // Other JSON frames (e.g. cell counts) are not entity updates
+        if (!frame.isArray()) {
+            return;
+        }
+        for (JsonNode update : frame) {
+            JsonNode id = update.get("id");
+            JsonNode timestamp = update.get("timestamp");
+            if (id != null && timestamp != null) {
+                tracker.delivered(id.asText(), timestamp.asLong(), receivedMs);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        for (WebSocket socket : sockets) {
+            socket.sendClose(WebSocket.NORMAL_CLOSURE, "done");
+        }
+    }
+
+    private final class Listener implements WebSocket.Listener {
+
+        private final StringBuilder partial = new StringBuilder();
+        private final ByteArrayOutputStream partialBinary = new ByteArrayOutputStream();
+
+        @Override
+        public CompletionStage<?> onText(WebSocket webSocket, CharSequence data, boolean last) {
+            long receivedMs = System.currentTimeMillis();
+            partial.append(data);
+            if (last) {
+                onFrame(partial.toString(), receivedMs);
+                partial.setLength(0);
+            }
+            webSocket.request(1);
+            return null;
+        }
+
+        /**
+         * The default json-binary format: the same JSON as UTF-8 in binary frames.
+         */
+        @Override
+        public CompletionStage<?> onBinary(WebSocket webSocket, ByteBuffer data, boolean last) {
+            long receivedMs = System.currentTimeMillis();
+            byte[] bytes = new byte[data.remaining()];
+            data.get(bytes);
+            partialBinary.writeBytes(bytes);
+            if (last) {
+                onFrame(partialBinary.toString(StandardCharsets.UTF_8), receivedMs);
+                partialBinary.reset();
+            }
+            webSocket.request(1);
+            return null;
+        }
+
+        @Override
+        public void onError(WebSocket webSocket, Throwable error) {
+            log.warn("WebSocket client failed: {}", error.getMessage());
+        }
+    }
+}
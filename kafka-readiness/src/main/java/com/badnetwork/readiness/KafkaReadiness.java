@@ -0,0 +1,156 @@
+package com.badnetwork.readiness;
+
+import jakarta.annotation.PreDestroy;
+import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.common.TopicPartition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.core.KafkaAdmin;
+import org.springframework.kafka.listener.MessageListenerContainer;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tracks whether a service is actually working against Kafka: the broker answers and the service's own
+ * {@link Check} passes. While ready, the readiness file (when set) exists, so an orchestrator can wait on it
+ * instead of sleeping; services with actuator also report it as a health contributor.
+ * <p>
+ * Each service compiles this source in and creates the bean from its own readiness properties.
+ */
+public class KafkaReadiness {
+
+    private static final Logger log = LoggerFactory.getLogger(KafkaReadiness.class);
+
+    /**
+     * A service's own readiness condition, checked once the broker answers.
+     */
+    @FunctionalInterface
+    public interface Check {
+
+        /**
+         * @return why the service is not ready yet, or null if it is
+         */
+        String notReadyReason();
+    }
+
+    private final KafkaAdmin kafkaAdmin;
+    private final long checkIntervalMs;
+    private final String file;
+    private final String readyReason;
+    private final Check check;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "kafka-readiness");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile boolean ready;
+    private volatile String reason = "not checked yet";
+    private AdminClient adminClient;
+
+    /**
+     * @param file        created while ready and deleted otherwise; none when empty
+     * @param readyReason reported while ready
+     */
+    public KafkaReadiness(KafkaAdmin kafkaAdmin, long checkIntervalMs, String file, String readyReason, Check check) {
+        this.kafkaAdmin = kafkaAdmin;
+        this.checkIntervalMs = checkIntervalMs;
+        this.file = file;
+        this.readyReason = readyReason;
+        this.check = check;
+    }
+
+    /**
+     * Ready once every running listener has been assigned partitions.
+     */
+    public static Check listenersAssigned(KafkaListenerEndpointRegistry listenerRegistry) {
+        return () -> {
+            for (MessageListenerContainer container : listenerRegistry.getListenerContainers()) {
+                if (!container.isRunning()) {
+                    continue;
+                }
+                Collection<TopicPartition> assigned = container.getAssignedPartitions();
+                if (assigned == null || assigned.isEmpty()) {
+                    return "listener " + container.getListenerId() + " has no partitions assigned";
+                }
+            }
+            return null;
+        };
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        scheduler.scheduleWithFixedDelay(this::check, 0, checkIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        scheduler.shutdownNow();
+        update(false, "shutting down");
+        if (adminClient != null) {
+            adminClient.close();
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public String getReason() {
+        return reason;
+    }
+
+    private void check() {
+        long timeoutMs = Math.max(checkIntervalMs, 1000);
+        try {
+            if (adminClient == null) {
+                adminClient = AdminClient.create(kafkaAdmin.getConfigurationProperties());
+            }
+            if (adminClient.describeCluster().nodes().get(timeoutMs, TimeUnit.MILLISECONDS).isEmpty()) {
+                update(false, "no Kafka brokers");
+            } else {
+                String notReady = check.notReadyReason();
+                update(notReady == null, notReady == null ? readyReason : notReady);
+            }
+        } catch (Exception e) {
+            String cause = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+            update(false, "Kafka unreachable: " + cause);
+        }
+    }
+
+    private void update(boolean nowReady, String nowReason) {
+        boolean changed = nowReady != ready;
+        ready = nowReady;
+        reason = nowReason;
+        if (changed) {
+            log.info("Readiness changed to {}: {}", nowReady ? "READY" : "NOT READY", nowReason);
+        }
+        writeFile(nowReady);
+    }
+
+    private void writeFile(boolean nowReady) {
+        if (file == null || file.isBlank()) {
+            return;
+        }
+        try {
+            Path path = Path.of(file);
+            if (nowReady) {
+                if (Files.notExists(path)) {
+                    Files.writeString(path, "ready\n");
+                }
+            } else {
+                Files.deleteIfExists(path);
+            }
+        } catch (IOException e) {
+            log.warn("Failed to update readiness file {}: {}", file, e.getMessage());
+        }
+    }
+}
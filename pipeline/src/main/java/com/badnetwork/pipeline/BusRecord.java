@@ -0,0 +1,11 @@
+package com.badnetwork.pipeline;
+
+/**
+ * One record published on the {@link InProcessBus}.
+ *
+ * @param position       per-topic sequence number, standing in for the Kafka offset
+ * @param timestamp      wall-clock publish time, standing in for the Kafka record timestamp
+ * @param publishedNanos {@link System#nanoTime()} at publish, to measure time spent in the ring buffer
+ */
+record BusRecord(String topic, String key, String value, long position, long timestamp, long publishedNanos) {
+}
@@ -0,0 +1,147 @@
+package com.badnetwork.pipeline;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Topic-based transport between the stages of the in-process pipeline. Like a Kafka consumer group, every
+ * subscription of a topic receives every record published after it subscribed, on its own thread and from
+ * its own {@link RingBuffer}; a publisher waits while any subscriber's buffer is full, which stands in for
+ * the backpressure a broker would apply. Records on a topic with no subscribers are dropped.
+ */
+final class InProcessBus implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(InProcessBus.class);
+    private static final int SPINS = 100;
+    private static final int YIELDS = 100;
+    private static final long PARK_NANOS = 50_000;
+
+    private final int capacity;
+    private final Map<String, Topic> topics = new ConcurrentHashMap<>();
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+    private volatile boolean running = true;
+
+    InProcessBus(int capacity) {
+        this.capacity = capacity;
+    }
+
+    /**
+     * @return completes with the record's position once every subscriber's buffer holds it
+     */
+    CompletableFuture<Long> publish(String topic, String key, String value) {
+        Topic target = topics.computeIfAbsent(topic, t -> new Topic());
+        // Positions are taken before enqueueing, so concurrent publishers may enqueue slightly out of position order
+        long position = target.nextPosition.getAndIncrement();
+        BusRecord record = new BusRecord(topic, key, value, position, System.currentTimeMillis(), System.nanoTime());
+        for (Subscription subscription : target.subscriptions) {
+            int idle = 0;
+            while (!subscription.buffer.offer(record)) {
+                if (!running) {
+                    return CompletableFuture.failedFuture(new IllegalStateException("Bus closed"));
+                }
+                idle(idle++);
+            }
+        }
+        return CompletableFuture.completedFuture(position);
+    }
+
+    /**
+     * Starts a thread delivering the topic's records to the handler, one at a time in buffer order.
+     */
+    void subscribe(String topic, String name, Consumer<BusRecord> handler) {
+        Subscription subscription = new Subscription(topic, name, new RingBuffer<>(capacity), handler);
+        subscriptions.add(subscription);
+        topics.computeIfAbsent(topic, t -> new Topic()).subscriptions.add(subscription);
+        Thread.ofPlatform().daemon().name("bus-" + topic + "-" + name).start(subscription::run);
+        log.info("{} subscribed to {}", name, topic);
+    }
+
+    /**
+     * @return per subscription: records delivered, waiting, and mean and max time from publish to delivery,
+     *         since the previous call
+     */
+    List<String> drainStats() {
+        List<String> stats = new ArrayList<>();
+        for (Subscription s : subscriptions) {
+            long delivered = s.delivered.sumThenReset();
+            long waitNanos = s.waitNanos.sumThenReset();
+            long maxNanos = s.maxWaitNanos.getAndSet(0);
+            stats.add("%s -> %s: %d delivered, %d waiting, mean %dus, max %dus".formatted(
+                    s.topic, s.name, delivered, s.buffer.size(),
+                    delivered == 0 ? 0 : waitNanos / delivered / 1000, maxNanos / 1000));
+        }
+        return stats;
+    }
+
+    @Override
+    public void close() {
+        running = false;
+    }
+
+    /**
+     * Spins, then yields, then parks: a busy stage sees microsecond hand-offs, an idle one costs no CPU.
+     */
+    private static void idle(int idleCount) {
+        if (idleCount < SPINS) {
+            Thread.onSpinWait();
+        } else if (idleCount < SPINS + YIELDS) {
+            Thread.yield();
+        } else {
+            LockSupport.parkNanos(PARK_NANOS);
+        }
+    }
+
+    private static final class Topic {
+        private final AtomicLong nextPosition = new AtomicLong();
+        private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+    }
+
+    private final class Subscription {
+        private final String topic;
+        private final String name;
+        private final RingBuffer<BusRecord> buffer;
+        private final Consumer<BusRecord> handler;
+        private final LongAdder delivered = new LongAdder();
+        private final LongAdder waitNanos = new LongAdder();
+        private final AtomicLong maxWaitNanos = new AtomicLong();
+
+        private Subscription(String topic, String name, RingBuffer<BusRecord> buffer, Consumer<BusRecord> handler) {
+            this.topic = topic;
+            this.name = name;
+            this.buffer = buffer;
+            this.handler = handler;
+        }
+
+        private void run() {
+            int idle = 0;
+            while (running) {
+                BusRecord record = buffer.poll();
+                if (record == null) {
+                    idle(idle++);
+                    continue;
+                }
+                idle = 0;
+                long wait = System.nanoTime() - record.publishedNanos();
+                delivered.increment();
+                waitNanos.add(wait);
+                maxWaitNanos.accumulateAndGet(wait, Math::max);
+                try {
+                    handler.accept(record);
+                } catch (Exception e) {
+                    log.error("{} failed to handle {} record: {}", name, topic, e.getMessage(), e);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.badnetwork.pipeline;
+
+import com.badnetwork.traffic2ui.Traffic2UIApplication;
+import com.badnetwork.traffic2ui.config.Traffic2UIProperties;
+import com.badnetwork.traffic2ui.recorder.TrafficRecorder;
+import com.badnetwork.traffic2ui.service.KafkaListenerService;
+import com.badnetwork.trafficencoder.TrafficEncoderApplication;
+import com.badnetwork.trafficencoder.config.EncoderProperties;
+import com.badnetwork.trafficencoder.service.TrafficEncoderService;
+import com.badnetwork.trafficscrambler.TrafficScramblerApplication;
+import com.badnetwork.trafficscrambler.config.ScramblerProperties;
+import com.badnetwork.trafficscrambler.service.ChaosConfigSync;
+import com.badnetwork.trafficscrambler.service.ChaosService;
+import com.badnetwork.trafficsim.TrafficSimulatorApplication;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ApplicationContextInitializer;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.support.GenericApplicationContext;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs traffic-sim, traffic-encoder, traffic-scrambler and traffic2ui in one JVM, each in its own Spring
+ * context configured by its own application.yml, with an {@link InProcessBus} in place of Kafka. Every
+ * service's transport publishes to the bus, and the bus feeds the methods their Kafka listeners would call;
+ * the listeners themselves are never started.
+ * <p>
+ * Arguments are passed to every service, so prefixed properties such as {@code --traffic.entity-count=500}
+ * reach the one they belong to. {@code --pipeline.ring-capacity} sizes each subscription's ring buffer and
+ * {@code --pipeline.stats-interval-sec} how often bus hand-off latencies are logged (0 disables).
+ */
+public final class PipelineApplication {
+
+    private static final Logger log = LoggerFactory.getLogger(PipelineApplication.class);
+    private static final String TRANSPORT = "in-process";
+
+    private PipelineApplication() {
+    }
+
+    public static void main(String[] args) {
+        Map<String, String> pipelineArgs = new LinkedHashMap<>();
+        List<String> serviceArgs = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.startsWith("--pipeline.") && arg.contains("=")) {
+                pipelineArgs.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+            } else {
+                serviceArgs.add(arg);
+            }
+        }
+        InProcessBus bus = new InProcessBus(Integer.parseInt(pipelineArgs.getOrDefault("pipeline.ring-capacity", "65536")));
+        List<ConfigurableApplicationContext> contexts = new ArrayList<>();
+        try {
+            // Downstream first, so every topic has its subscribers before anything is published to it
+            ConfigurableApplicationContext ui = start(Traffic2UIApplication.class, "traffic2ui",
+                    Map.of("traffic2ui.kafka.topic", "traffic-chaos"), serviceArgs,
+                    Map.of("traffic2ui.readiness.enabled", "false"), null);
+            contexts.add(ui);
+            subscribeTraffic2ui(bus, ui);
+
+            ConfigurableApplicationContext scrambler = start(TrafficScramblerApplication.class, "traffic-scrambler",
+                    Map.of(), serviceArgs, Map.of("scrambler.transport", TRANSPORT, "scrambler.readiness.enabled", "false"),
+                    transport(com.badnetwork.trafficscrambler.transport.TrafficTransport.class, bus::publish));
+            contexts.add(scrambler);
+            subscribeScrambler(bus, scrambler);
+
+            ConfigurableApplicationContext encoder = start(TrafficEncoderApplication.class, "traffic-encoder",
+                    // The encoder logs every event at INFO, which would cost more than the hand-off it measures
+                    Map.of("logging.level.com.badnetwork.trafficencoder.service", "WARN"), serviceArgs,
+                    Map.of("encoder.transport", TRANSPORT, "encoder.readiness.enabled", "false",
+                            "spring.main.web-application-type", "none"),
+                    transport(com.badnetwork.trafficencoder.transport.TrafficTransport.class, bus::publish));
+            contexts.add(encoder);
+            TrafficEncoderService encoderService = encoder.getBean(TrafficEncoderService.class);
+            bus.subscribe(encoder.getBean(EncoderProperties.class).getKafka().getSourceTopic(), "traffic-encoder",
+                    record -> encoderService.consume(record.value()));
+
+            contexts.add(start(TrafficSimulatorApplication.class, "traffic-sim", Map.of(), serviceArgs,
+                    Map.of("traffic.transport", TRANSPORT, "traffic.readiness.enabled", "false",
+                            "spring.main.web-application-type", "none"),
+                    transport(com.badnetwork.trafficsim.transport.TrafficTransport.class, bus::publish)));
+        } catch (Exception e) {
+            log.error("Pipeline failed to start: {}", e.getMessage());
+            close(contexts, bus);
+            System.exit(1);
+        }
+
+        ScheduledExecutorService stats = scheduleStats(bus, Long.parseLong(pipelineArgs.getOrDefault("pipeline.stats-interval-sec", "10")));
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            stats.shutdownNow();
+            close(contexts, bus);
+        }, "pipeline-shutdown"));
+        log.info("In-process pipeline running");
+    }
+
+    private static void close(List<ConfigurableApplicationContext> contexts, InProcessBus bus) {
+        // Upstream first, so no stage publishes into one that has already stopped
+        for (int i = contexts.size() - 1; i >= 0; i--) {
+            contexts.get(i).close();
+        }
+        bus.close();
+    }
+
+    private static void subscribeTraffic2ui(InProcessBus bus, ConfigurableApplicationContext ui) {
+        Traffic2UIProperties properties = ui.getBean(Traffic2UIProperties.class);
+        KafkaListenerService listener = ui.getBean(KafkaListenerService.class);
+        bus.subscribe(properties.getKafka().getTopic(), "traffic2ui", record -> listener.listen(record.value()));
+        if (properties.getReconstruction().isEnabled()) {
+            bus.subscribe(properties.getReconstruction().getOriginalTopic(), "traffic2ui-original",
+                    record -> listener.listenOriginal(record.value()));
+        }
+        TrafficRecorder recorder = ui.getBean(TrafficRecorder.class);
+        if (recorder.isEnabled()) {
+            for (String topic : recorder.getTopics()) {
+                bus.subscribe(topic, "traffic2ui-recorder",
+                        record -> recorder.record(record.topic(), record.timestamp(), record.value()));
+            }
+        }
+    }
+
+    private static void subscribeScrambler(InProcessBus bus, ConfigurableApplicationContext scrambler) {
+        ChaosService chaosService = scrambler.getBean(ChaosService.class);
+        for (String topic : chaosService.getSourceTopics()) {
+            bus.subscribe(topic, "traffic-scrambler",
+                    record -> chaosService.process(record.topic(), record.key(), record.value()));
+        }
+        ChaosConfigSync configSync = scrambler.getBean(ChaosConfigSync.class);
+        bus.subscribe(scrambler.getBean(ScramblerProperties.class).getKafka().getConfigTopic(), "traffic-scrambler-config",
+                record -> configSync.apply(record.value(), record.key(), record.position()));
+    }
+
+    /**
+     * @param defaults  replace the service's application.yml values, unless given as arguments
+     * @param overrides take precedence over both the service's application.yml and the arguments
+     */
+    private static ConfigurableApplicationContext start(Class<?> application, String service,
+                                                        Map<String, String> defaults, List<String> args,
+                                                        Map<String, String> overrides,
+                                                        ApplicationContextInitializer<?> transport) {
+        Map<String, String> properties = new LinkedHashMap<>(defaults);
+        List<String> otherArgs = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.startsWith("--") && arg.contains("=")) {
+                properties.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+            } else {
+                otherArgs.add(arg);
+            }
+        }
+        properties.put("spring.config.location", "classpath:/" + service + "/");
+        properties.put("spring.main.banner-mode", "off");
+        properties.put("spring.kafka.listener.auto-startup", "false");
+        properties.put("spring.kafka.admin.auto-create", "false");
+        // Kafka readiness is meaningless without Kafka; the health groups still name it
+        properties.put("management.endpoint.health.validate-group-membership", "false");
+        properties.putAll(overrides);
+        properties.forEach((name, value) -> otherArgs.add("--" + name + "=" + value));
+
+        SpringApplicationBuilder builder = new SpringApplicationBuilder(application).main(application);
+        if (transport != null) {
+            builder.initializers(transport);
+        }
+        log.info("Starting {}", service);
+        return builder.run(otherArgs.toArray(new String[0]));
+    }
+
+    private static <T> ApplicationContextInitializer<GenericApplicationContext> transport(Class<T> type, T transport) {
+        return context -> context.registerBean(type, () -> transport);
+    }
+
+    private static ScheduledExecutorService scheduleStats(InProcessBus bus, long intervalSec) {
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(
+                runnable -> Thread.ofPlatform().daemon().name("bus-stats").unstarted(runnable));
+        if (intervalSec > 0) {
+            scheduler.scheduleAtFixedRate(() -> bus.drainStats().forEach(line -> log.info("{}", line)),
+                    intervalSec, intervalSec, TimeUnit.SECONDS);
+        }
+        return scheduler;
+    }
+}
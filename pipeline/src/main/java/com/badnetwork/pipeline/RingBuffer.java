@@ -0,0 +1,85 @@
+package com.badnetwork.pipeline;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded lock-free queue for many producers and one consumer. Each slot carries a sequence number:
+ * a producer claims a slot by advancing the tail with a CAS once the slot's sequence shows it empty, and
+ * publishes the element by releasing the next sequence, which the consumer acquires before reading it.
+ */
+final class RingBuffer<E> {
+
+    private final int mask;
+    private final Object[] elements;
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong();
+    // Only the consumer thread reads or writes the head
+    private long head;
+
+    /**
+     * @param capacity rounded up to a power of two
+     */
+    RingBuffer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.mask = size - 1;
+        this.elements = new Object[size];
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * @return false if the buffer is full
+     */
+    boolean offer(E element) {
+        long position;
+        int index;
+        while (true) {
+            position = tail.get();
+            index = (int) position & mask;
+            long available = sequences.getAcquire(index) - position;
+            if (available == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    break;
+                }
+            } else if (available < 0) {
+                return false;
+            }
+            // Another producer claimed the slot first; retry with the new tail
+        }
+        elements[index] = element;
+        sequences.setRelease(index, position + 1);
+        return true;
+    }
+
+    /**
+     * Consumer thread only.
+     *
+     * @return the oldest element, or null if the buffer is empty
+     */
+    @SuppressWarnings("unchecked")
+    E poll() {
+        int index = (int) head & mask;
+        if (sequences.getAcquire(index) != head + 1) {
+            return null;
+        }
+        E element = (E) elements[index];
+        elements[index] = null;
+        sequences.setRelease(index, head + elements.length);
+        head++;
+        return element;
+    }
+
+    /**
+     * @return elements waiting; approximate while producers are running
+     */
+    int size() {
+        return (int) Math.max(0, tail.get() - head);
+    }
+
+    int capacity() {
+        return elements.length;
+    }
+}
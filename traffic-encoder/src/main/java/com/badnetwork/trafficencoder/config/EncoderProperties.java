@@ -9,6 +9,11 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
 public class EncoderProperties {
 
     private Kafka kafka = new Kafka();
+    private State state = new State();
+    private Ordering ordering = new Ordering();
+    private Proximity proximity = new Proximity();
+    private Geofence geofence = new Geofence();
+    private Readiness readiness = new Readiness();
 
     @Data
     public static final class Kafka {
@@ -17,4 +22,70 @@ public class EncoderProperties {
         private String deltaTopic = "traffic-delta";
         private String consumerGroupId = "traffic-encoder";
     }
+
+    @Data
+    public static final class State {
+        /** memory: a heap map; mapped: memory-mapped files in directory, kept across restarts. */
+        private String backend = "memory";
+        private String directory = "encoder-state";
+        /** Entities the mapped backend keeps on the heap, most recently used first. */
+        private int cacheEntries = 1_000_000;
+        /** Index slots the mapped backend starts with; doubled as entities are added. */
+        private long initialCapacity = 1 << 20;
+    }
+
+    @Data
+    public static final class Ordering {
+        private boolean enabled = false;
+        /** Each entity's watermark trails the newest event time seen for that entity by this much. */
+        private long watermarkDelayMs = 200;
+        /** No event is held longer than this, so an entity's last events still leave when it goes quiet. */
+        private long maxHoldMs = 1000;
+        /** Past this many held events of one entity its oldest is released early. */
+        private int maxPerEntity = 16;
+        /** Memory backstop: past this many held events in total the oldest arrivals are released early. */
+        private int maxBuffered = 1_000_000;
+        private LatePolicy latePolicy = LatePolicy.DROP;
+    }
+
+    public enum LatePolicy {
+        /** Discard an event not after the entity's last applied one, so no delta jumps backwards. */
+        DROP,
+        /** Compute its delta against the last applied event anyway. */
+        APPLY
+    }
+
+    @Data
+    public static final class Proximity {
+        private boolean enabled = false;
+        private String topic = "traffic-proximity";
+        private double thresholdMeters = 50;
+        /**
+         * Positions reported further apart in time than this are never compared, and an entity this far
+         * behind the newest position is dropped (EXIT for each of its pairs).
+         */
+        private long maxTimeSkewMs = 2000;
+        /** Entities the grid is sized for up front; it doubles past this. */
+        private int initialCapacity = 131072;
+    }
+
+    @Data
+    public static final class Geofence {
+        private boolean enabled = false;
+        private String topic = "traffic-geofence";
+        /** GeoJSON FeatureCollection of Polygon/MultiPolygon features: a file path or an http(s) URL. */
+        private String source = "geofences.geojson";
+        /** Re-read the source this often and swap in the fences if it changed; 0 loads them once. */
+        private long reloadIntervalMs = 60000;
+        /** An entity not updated for this long in event time leaves its fences (EXIT for each); 0 never. */
+        private long expireAfterMs = 60000;
+    }
+
+    @Data
+    public static final class Readiness {
+        private boolean enabled = true;
+        /** Created while ready and deleted otherwise, for orchestrators to probe; none when empty. */
+        private String file = "";
+        private long checkIntervalMs = 1000;
+    }
 }
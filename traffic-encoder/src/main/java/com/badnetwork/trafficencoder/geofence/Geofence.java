@@ -0,0 +1,55 @@
+package com.badnetwork.trafficencoder.geofence;
+
+import java.util.List;
+
+/**
+ * A named polygonal area. Its rings (outer boundaries and holes of one or more polygons) are combined
+ * even-odd, so a point is inside when a ray from it crosses the rings an odd number of times.
+ *
+ * @param lons per ring, the longitude of each vertex
+ * @param lats per ring, the latitude of each vertex
+ */
+record Geofence(String id, double[][] lons, double[][] lats,
+                double minLon, double minLat, double maxLon, double maxLat) {
+
+    /**
+     * @param rings per ring, its [lon, lat] vertices; the closing vertex may be repeated or left out
+     */
+    static Geofence of(String id, List<double[][]> rings) {
+        double[][] lons = new double[rings.size()][];
+        double[][] lats = new double[rings.size()][];
+        double minLon = Double.POSITIVE_INFINITY;
+        double minLat = Double.POSITIVE_INFINITY;
+        double maxLon = Double.NEGATIVE_INFINITY;
+        double maxLat = Double.NEGATIVE_INFINITY;
+        for (int r = 0; r < rings.size(); r++) {
+            double[][] ring = rings.get(r);
+            lons[r] = new double[ring.length];
+            lats[r] = new double[ring.length];
+            for (int v = 0; v < ring.length; v++) {
+                lons[r][v] = ring[v][0];
+                lats[r][v] = ring[v][1];
+                minLon = Math.min(minLon, ring[v][0]);
+                maxLon = Math.max(maxLon, ring[v][0]);
+                minLat = Math.min(minLat, ring[v][1]);
+                maxLat = Math.max(maxLat, ring[v][1]);
+            }
+        }
+        return new Geofence(id, lons, lats, minLon, minLat, maxLon, maxLat);
+    }
+
+    boolean contains(double lat, double lon) {
+        boolean inside = false;
+        for (int r = 0; r < lons.length; r++) {
+            double[] xs = lons[r];
+            double[] ys = lats[r];
+            for (int i = 0, j = xs.length - 1; i < xs.length; j = i++) {
+                if ((ys[i] > lat) != (ys[j] > lat)
+                        && lon < (xs[j] - xs[i]) * (lat - ys[i]) / (ys[j] - ys[i]) + xs[i]) {
+                    inside = !inside;
+                }
+            }
+        }
+        return inside;
+    }
+}
@@ -0,0 +1,265 @@
+package com.badnetwork.trafficencoder.geofence;
+
+import com.badnetwork.trafficencoder.config.EncoderProperties;
+import com.badnetwork.trafficencoder.model.GeofenceEvent;
+import com.badnetwork.trafficencoder.model.TrafficEvent;
+import com.badnetwork.trafficencoder.transport.TrafficTransport;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntConsumer;
+
+/**
+ * Publishes ENTER and EXIT events as entities cross the fences loaded from encoder.geofence.source. Fence
+ * bounding boxes are indexed in a {@link PackedRTree}, so a position is tested exactly only against the
+ * few fences whose box contains it. Per entity, only the sorted indexes of the fences it is inside are
+ * kept; entities outside every fence take no state. An entity not updated for expire-after-ms of event time
+ * is taken to have left: EXIT for each fence it was inside and its state dropped. The source is re-read
+ * every reload-interval-ms and the fences replaced when it changed, keeping each entity's state for the
+ * fences that remain.
+ */
+@Component
+public class GeofenceEngine {
+
+    private static final Logger log = LoggerFactory.getLogger(GeofenceEngine.class);
+    private static final int[] OUTSIDE = new int[0];
+
+    private final EncoderProperties.Geofence config;
+    private final TrafficTransport transport;
+    private final ObjectMapper objectMapper;
+    private final Map<String, Inside> insideByEntity = new HashMap<>();
+    private final IntConsumer collectCandidate = this::collectCandidate;
+    private ScheduledExecutorService scheduler;
+    private GeofenceSource source;
+    private String loadedContent;
+
+    private Geofence[] fences = new Geofence[0];
+    private PackedRTree tree = new PackedRTree(new double[0]);
+    private int[] candidates = new int[16];
+    private int candidateCount;
+    private long newestTimestamp = Long.MIN_VALUE;
+    private long lastExpiryTimestamp = Long.MIN_VALUE;
+
+    public GeofenceEngine(EncoderProperties properties,
+                          TrafficTransport transport,
+                          ObjectMapper objectMapper) {
+        this.config = properties.getGeofence();
+        this.transport = transport;
+        this.objectMapper = objectMapper;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!config.isEnabled()) {
+            return;
+        }
+        source = new GeofenceSource(config.getSource(), objectMapper);
+        reload();
+        if (config.getReloadIntervalMs() > 0) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "geofence-reload");
+                thread.setDaemon(true);
+                return thread;
+            });
+            scheduler.scheduleWithFixedDelay(this::reload, config.getReloadIntervalMs(),
+                    config.getReloadIntervalMs(), TimeUnit.MILLISECONDS);
+        }
+        log.info("Geofencing enabled - {} fence(s) from {}, publishing to: {}",
+                getFenceCount(), config.getSource(), config.getTopic());
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    public boolean isEnabled() {
+        return config.isEnabled();
+    }
+
+    public synchronized int getFenceCount() {
+        return fences.length;
+    }
+
+    public synchronized int getEntitiesInside() {
+        return insideByEntity.size();
+    }
+
+    private void reload() {
+        try {
+            String content = source.read();
+            if (content.equals(loadedContent)) {
+                return;
+            }
+            List<Geofence> loaded = source.parse(content);
+            setFences(loaded);
+            loadedContent = content;
+            log.info("Loaded {} fence(s) from {}", loaded.size(), config.getSource());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.warn("Failed to load fences from {}, keeping {} fence(s): {}",
+                    config.getSource(), getFenceCount(), e.getMessage());
+        }
+    }
+
+    /**
+     * Replaces the fences, keeping each entity's state for the fence ids that remain.
+     */
+    synchronized void setFences(List<Geofence> replacement) {
+        double[] boxes = new double[replacement.size() * 4];
+        Map<String, Integer> newIndexes = new HashMap<>(replacement.size() * 4 / 3 + 1);
+        for (int i = 0; i < replacement.size(); i++) {
+            Geofence fence = replacement.get(i);
+            boxes[i * 4] = fence.minLon();
+            boxes[i * 4 + 1] = fence.minLat();
+            boxes[i * 4 + 2] = fence.maxLon();
+            boxes[i * 4 + 3] = fence.maxLat();
+            newIndexes.put(fence.id(), i);
+        }
+
+        Geofence[] previous = fences;
+        insideByEntity.values().removeIf(inside -> {
+            int kept = 0;
+            int[] remapped = new int[inside.fences.length];
+            for (int fence : inside.fences) {
+                Integer index = newIndexes.get(previous[fence].id());
+                if (index != null) {
+                    remapped[kept++] = index;
+                }
+            }
+            Arrays.sort(remapped, 0, kept);
+            inside.fences = Arrays.copyOf(remapped, kept);
+            return kept == 0;
+        });
+
+        fences = replacement.toArray(new Geofence[0]);
+        tree = new PackedRTree(boxes);
+    }
+
+    public synchronized void update(TrafficEvent event) {
+        if (!config.isEnabled()) {
+            return;
+        }
+        double lat = event.getLat();
+        double lon = event.getLon();
+        candidateCount = 0;
+        tree.search(lon, lat, collectCandidate);
+        int insideCount = 0;
+        for (int i = 0; i < candidateCount; i++) {
+            if (fences[candidates[i]].contains(lat, lon)) {
+                candidates[insideCount++] = candidates[i];
+            }
+        }
+        Arrays.sort(candidates, 0, insideCount);
+
+        String id = event.getId();
+        Inside inside = insideByEntity.get(id);
+        int[] before = inside == null ? OUTSIDE : inside.fences;
+        if (!Arrays.equals(before, 0, before.length, candidates, 0, insideCount)) {
+            // Both sorted: walk them together to find the fences entered and left
+            int b = 0;
+            int n = 0;
+            while (b < before.length || n < insideCount) {
+                if (n == insideCount || (b < before.length && before[b] < candidates[n])) {
+                    publish("EXIT", id, before[b++], event.getTimestamp(), lat, lon);
+                } else if (b == before.length || candidates[n] < before[b]) {
+                    publish("ENTER", id, candidates[n++], event.getTimestamp(), lat, lon);
+                } else {
+                    b++;
+                    n++;
+                }
+            }
+            if (insideCount == 0) {
+                insideByEntity.remove(id);
+                inside = null;
+            } else {
+                if (inside == null) {
+                    inside = new Inside();
+                    insideByEntity.put(id, inside);
+                }
+                inside.fences = Arrays.copyOf(candidates, insideCount);
+            }
+        }
+        if (inside != null) {
+            inside.timestamp = Math.max(inside.timestamp, event.getTimestamp());
+            inside.lat = lat;
+            inside.lon = lon;
+        }
+
+        newestTimestamp = Math.max(newestTimestamp, event.getTimestamp());
+        if (config.getExpireAfterMs() <= 0) {
+            return;
+        }
+        if (lastExpiryTimestamp == Long.MIN_VALUE) {
+            lastExpiryTimestamp = newestTimestamp;
+        } else if (newestTimestamp - lastExpiryTimestamp >= config.getExpireAfterMs()) {
+            lastExpiryTimestamp = newestTimestamp;
+            expireStale();
+        }
+    }
+
+    /**
+     * Sends EXIT, at its last position, for every fence of each entity not updated for expire-after-ms.
+     */
+    private void expireStale() {
+        long expiredAt = newestTimestamp;
+        long cutoff = expiredAt - config.getExpireAfterMs();
+        int before = insideByEntity.size();
+        insideByEntity.entrySet().removeIf(entry -> {
+            Inside inside = entry.getValue();
+            if (inside.timestamp >= cutoff) {
+                return false;
+            }
+            for (int fence : inside.fences) {
+                publish("EXIT", entry.getKey(), fence, expiredAt, inside.lat, inside.lon);
+            }
+            return true;
+        });
+        if (insideByEntity.size() < before) {
+            log.debug("Dropped {} entities not updated for {}ms", before - insideByEntity.size(),
+                    config.getExpireAfterMs());
+        }
+    }
+
+    private void collectCandidate(int fence) {
+        if (candidateCount == candidates.length) {
+            candidates = Arrays.copyOf(candidates, candidateCount * 2);
+        }
+        candidates[candidateCount++] = fence;
+    }
+
+    private void publish(String type, String id, int fence, long timestamp, double lat, double lon) {
+        GeofenceEvent geofenceEvent = new GeofenceEvent(type, id, fences[fence].id(), timestamp, lat, lon);
+        try {
+            transport.send(config.getTopic(), id, objectMapper.writeValueAsString(geofenceEvent));
+            log.debug("Published geofence {} of {} for {}", type, id, geofenceEvent.getFenceId());
+        } catch (JsonProcessingException e) {
+            log.warn("Failed to serialize geofence event for entity {}: {}", id, e.getMessage());
+        }
+    }
+
+    /**
+     * The sorted fences an entity is inside and where it last was.
+     */
+    private static final class Inside {
+        int[] fences;
+        long timestamp;
+        double lat;
+        double lon;
+    }
+}
@@ -0,0 +1,95 @@
+package com.badnetwork.trafficencoder.geofence;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads fences from a GeoJSON FeatureCollection of Polygon and MultiPolygon features, held in a local file
+ * or served by an http(s) endpoint. A fence is named by its feature id, else its id or name property.
+ */
+final class GeofenceSource {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+    private final String location;
+    private final ObjectMapper objectMapper;
+    private HttpClient httpClient;
+
+    GeofenceSource(String location, ObjectMapper objectMapper) {
+        this.location = location;
+        this.objectMapper = objectMapper;
+    }
+
+    String read() throws IOException, InterruptedException {
+        if (!location.startsWith("http://") && !location.startsWith("https://")) {
+            return Files.readString(Path.of(location));
+        }
+        if (httpClient == null) {
+            httpClient = HttpClient.newBuilder().connectTimeout(TIMEOUT).build();
+        }
+        HttpRequest request = HttpRequest.newBuilder(URI.create(location)).timeout(TIMEOUT).GET().build();
+        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IOException("GET " + location + " returned " + response.statusCode());
+        }
+        return response.body();
+    }
+
+    List<Geofence> parse(String geoJson) throws IOException {
+        JsonNode root = objectMapper.readTree(geoJson);
+        JsonNode features = root.path("features");
+        List<Geofence> fences = new ArrayList<>(features.size());
+        for (JsonNode feature : features) {
+            JsonNode geometry = feature.path("geometry");
+            List<double[][]> rings = new ArrayList<>();
+            switch (geometry.path("type").asText()) {
+                case "Polygon" -> addRings(geometry.path("coordinates"), rings);
+                case "MultiPolygon" -> geometry.path("coordinates").forEach(polygon -> addRings(polygon, rings));
+                default -> {
+                    continue;
+                }
+            }
+            if (!rings.isEmpty()) {
+                fences.add(Geofence.of(idOf(feature, fences.size()), rings));
+            }
+        }
+        return fences;
+    }
+
+    private static void addRings(JsonNode polygon, List<double[][]> rings) {
+        for (JsonNode ring : polygon) {
+            double[][] vertices = new double[ring.size()][];
+            for (int v = 0; v < ring.size(); v++) {
+                vertices[v] = new double[] {ring.get(v).get(0).asDouble(), ring.get(v).get(1).asDouble()};
+            }
+            if (vertices.length >= 3) {
+                rings.add(vertices);
+            }
+        }
+    }
+
+    private static String idOf(JsonNode feature, int position) {
+        if (feature.hasNonNull("id")) {
+            return feature.get("id").asText();
+        }
+        JsonNode properties = feature.path("properties");
+        if (properties.hasNonNull("id")) {
+            return properties.get("id").asText();
+        }
+        if (properties.hasNonNull("name")) {
+            return properties.get("name").asText();
+        }
+        return "fence-" + position;
+    }
+}
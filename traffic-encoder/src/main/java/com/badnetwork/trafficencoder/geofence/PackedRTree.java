@@ -0,0 +1,144 @@
+package com.badnetwork.trafficencoder.geofence;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Static R-tree bulk-loaded with Sort-Tile-Recursive packing: items are sorted into vertical slices by
+ * x, each slice by y, and every run of {@value #NODE_SIZE} consecutive entries gets a parent, level by
+ * level up to one root. Nodes live in flat arrays, leaves first, so a point query touches about
+ * log16(n) nodes and allocates nothing. Immutable once built; rebuild it to change the items.
+ */
+final class PackedRTree {
+
+    static final int NODE_SIZE = 16;
+
+    // minX, minY, maxX, maxY per node
+    private final double[] boxes;
+    // Leaf: the item index; inner node: the position of its first child
+    private final int[] indices;
+    // Exclusive end position of each level, leaves first
+    private final int[] levelEnds;
+    private final int[] stack;
+
+    /**
+     * @param itemBoxes minX, minY, maxX, maxY of each item in turn
+     */
+    PackedRTree(double[] itemBoxes) {
+        int count = itemBoxes.length / 4;
+        int nodes = count;
+        int levels = 1;
+        for (int n = count; n > 1; n = (n + NODE_SIZE - 1) / NODE_SIZE) {
+            nodes += (n + NODE_SIZE - 1) / NODE_SIZE;
+            levels++;
+        }
+        boxes = new double[nodes * 4];
+        indices = new int[nodes];
+        levelEnds = new int[levels];
+        stack = new int[levels * NODE_SIZE * 2];
+
+        int[] order = strOrder(itemBoxes, count);
+        for (int i = 0; i < count; i++) {
+            System.arraycopy(itemBoxes, order[i] * 4, boxes, i * 4, 4);
+            indices[i] = order[i];
+        }
+        levelEnds[0] = count;
+
+        int start = 0;
+        int end = count;
+        for (int level = 1; level < levels; level++) {
+            int position = end;
+            for (int child = start; child < end; child += NODE_SIZE) {
+                double minX = Double.POSITIVE_INFINITY;
+                double minY = Double.POSITIVE_INFINITY;
+                double maxX = Double.NEGATIVE_INFINITY;
+                double maxY = Double.NEGATIVE_INFINITY;
+                for (int c = child; c < Math.min(child + NODE_SIZE, end); c++) {
+                    minX = Math.min(minX, boxes[c * 4]);
+                    minY = Math.min(minY, boxes[c * 4 + 1]);
+                    maxX = Math.max(maxX, boxes[c * 4 + 2]);
+                    maxY = Math.max(maxY, boxes[c * 4 + 3]);
+                }
+                boxes[position * 4] = minX;
+                boxes[position * 4 + 1] = minY;
+                boxes[position * 4 + 2] = maxX;
+                boxes[position * 4 + 3] = maxY;
+                indices[position++] = child;
+            }
+            levelEnds[level] = position;
+            start = end;
+            end = position;
+        }
+    }
+
+    int size() {
+        return levelEnds[0];
+    }
+
+    /**
+     * Visits every item whose box contains the point. Not safe for concurrent queries.
+     */
+    void search(double x, double y, IntConsumer visitor) {
+        int count = levelEnds[0];
+        if (count == 0) {
+            return;
+        }
+        int top = levelEnds.length - 1;
+        if (top == 0) {
+            // A single item is its own root
+            if (contains(0, x, y)) {
+                visitor.accept(indices[0]);
+            }
+            return;
+        }
+        int depth = 0;
+        stack[depth++] = levelEnds[top] - 1;
+        stack[depth++] = top;
+        while (depth > 0) {
+            int level = stack[--depth];
+            int node = stack[--depth];
+            int childLevel = level - 1;
+            int first = indices[node];
+            int last = Math.min(first + NODE_SIZE, levelEnds[childLevel]);
+            for (int child = first; child < last; child++) {
+                if (!contains(child, x, y)) {
+                    continue;
+                }
+                if (childLevel == 0) {
+                    visitor.accept(indices[child]);
+                } else {
+                    stack[depth++] = child;
+                    stack[depth++] = childLevel;
+                }
+            }
+        }
+    }
+
+    private boolean contains(int node, double x, double y) {
+        int i = node * 4;
+        return x >= boxes[i] && y >= boxes[i + 1] && x <= boxes[i + 2] && y <= boxes[i + 3];
+    }
+
+    private static int[] strOrder(double[] itemBoxes, int count) {
+        Integer[] order = new Integer[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(centerX(itemBoxes, a), centerX(itemBoxes, b)));
+        int leaves = (count + NODE_SIZE - 1) / NODE_SIZE;
+        int sliceSize = (int) Math.ceil(Math.sqrt(leaves)) * NODE_SIZE;
+        for (int from = 0; from < count; from += sliceSize) {
+            Arrays.sort(order, from, Math.min(from + sliceSize, count),
+                    (a, b) -> Double.compare(centerY(itemBoxes, a), centerY(itemBoxes, b)));
+        }
+        return Arrays.stream(order).mapToInt(Integer::intValue).toArray();
+    }
+
+    private static double centerX(double[] itemBoxes, int item) {
+        return (itemBoxes[item * 4] + itemBoxes[item * 4 + 2]) / 2;
+    }
+
+    private static double centerY(double[] itemBoxes, int item) {
+        return (itemBoxes[item * 4 + 1] + itemBoxes[item * 4 + 3]) / 2;
+    }
+}
@@ -0,0 +1,19 @@
+package com.badnetwork.trafficencoder.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class GeofenceEvent {
+
+    /** ENTER or EXIT. */
+    private String type;
+    private String id;
+    private String fenceId;
+    private long timestamp;
+    private double lat;
+    private double lon;
+}
@@ -0,0 +1,20 @@
+package com.badnetwork.trafficencoder.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProximityEvent {
+
+    /** ENTER when the pair came within the threshold, EXIT when it moved apart or one side went quiet. */
+    private String type;
+    private String id;
+    private String otherId;
+    private double distanceMeters;
+    private long timestamp;
+    private double lat;
+    private double lon;
+}
@@ -0,0 +1,186 @@
+package com.badnetwork.trafficencoder.ordering;
+
+import com.badnetwork.trafficencoder.config.EncoderProperties;
+import com.badnetwork.trafficencoder.model.TrafficEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Holds events briefly and hands each entity's events on in event-time order. Every entity has its own
+ * small reorder buffer and its own watermark, the newest event time seen for it minus watermark-delay-ms,
+ * so sims whose clocks disagree never hold back or overtake each other's entities. An event is released
+ * once its entity's watermark passes it, once it has been held max-hold-ms (which lets an entity's last
+ * events out when it goes quiet), or early when its entity holds more than max-per-entity events. Past
+ * max-buffered events in total, the longest-held are released early as a memory backstop.
+ */
+public class EventTimeReorderer {
+
+    private static final Logger log = LoggerFactory.getLogger(EventTimeReorderer.class);
+    private static final long RELEASE_INTERVAL_MS = 10;
+
+    private final EncoderProperties.Ordering config;
+    private final Consumer<TrafficEvent> sink;
+    // Entities with events held; removed once their buffer empties
+    private final Map<String, EntityBuffer> buffers = new HashMap<>();
+    // Every held event in arrival order, for max-hold-ms and max-buffered; released ones are skipped
+    private final ArrayDeque<Held> arrivals = new ArrayDeque<>();
+    private ScheduledExecutorService scheduler;
+    private long sequence;
+    private int heldCount;
+    private long forced;
+
+    /**
+     * @param sink receives the events in order, while this reorderer's lock is held
+     */
+    public EventTimeReorderer(EncoderProperties.Ordering config, Consumer<TrafficEvent> sink) {
+        this.config = config;
+        this.sink = sink;
+    }
+
+    public void start() {
+        if (!config.isEnabled()) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "event-time-release");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleAtFixedRate(this::releaseDue, RELEASE_INTERVAL_MS, RELEASE_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        log.info("Ordering events by event time per entity: watermark delay {}ms, max hold {}ms, late events: {}",
+                config.getWatermarkDelayMs(), config.getMaxHoldMs(), config.getLatePolicy());
+    }
+
+    /**
+     * Releases everything still held, in order per entity, and stops the release timer.
+     */
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        for (EntityBuffer buffer : buffers.values()) {
+            while (!buffer.held.isEmpty()) {
+                release(buffer.held.poll());
+            }
+        }
+        buffers.clear();
+        arrivals.clear();
+    }
+
+    public void offer(TrafficEvent event) {
+        if (!config.isEnabled()) {
+            sink.accept(event);
+            return;
+        }
+        long now = System.currentTimeMillis();
+        synchronized (this) {
+            EntityBuffer buffer = buffers.computeIfAbsent(event.getId(), id -> new EntityBuffer());
+            Held held = new Held(event, buffer, sequence++, now);
+            buffer.held.add(held);
+            buffer.maxTimestamp = Math.max(buffer.maxTimestamp, event.getTimestamp());
+            arrivals.addLast(held);
+            heldCount++;
+
+            long watermark = buffer.maxTimestamp - config.getWatermarkDelayMs();
+            while (!buffer.held.isEmpty() && buffer.held.peek().event.getTimestamp() <= watermark) {
+                release(buffer.held.poll());
+            }
+            while (buffer.held.size() > config.getMaxPerEntity()) {
+                forced++;
+                release(buffer.held.poll());
+            }
+            if (buffer.held.isEmpty()) {
+                buffers.remove(event.getId());
+            }
+            releaseOverdue(now);
+        }
+    }
+
+    public synchronized int getHeldCount() {
+        return heldCount;
+    }
+
+    /**
+     * @return events released before their entity's watermark passed them, because of max-hold-ms,
+     *         max-per-entity or max-buffered
+     */
+    public synchronized long getForcedCount() {
+        return forced;
+    }
+
+    private void releaseDue() {
+        try {
+            long now = System.currentTimeMillis();
+            synchronized (this) {
+                releaseOverdue(now);
+            }
+        } catch (Exception e) {
+            log.error("Error releasing ordered events: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Releases events held max-hold-ms, and the longest-held while more than max-buffered are held. An
+     * entity's events with earlier timestamps go first, so its order is kept.
+     */
+    private void releaseOverdue(long now) {
+        long heldSince = now - config.getMaxHoldMs();
+        Held oldest;
+        while ((oldest = arrivals.peekFirst()) != null) {
+            if (oldest.released) {
+                arrivals.pollFirst();
+                continue;
+            }
+            if (oldest.arrivedMs > heldSince && heldCount <= config.getMaxBuffered()) {
+                return;
+            }
+            EntityBuffer buffer = oldest.buffer;
+            Held next;
+            do {
+                next = buffer.held.poll();
+                forced++;
+                release(next);
+            } while (next != oldest);
+            if (buffer.held.isEmpty()) {
+                buffers.remove(oldest.event.getId(), buffer);
+            }
+        }
+    }
+
+    private void release(Held held) {
+        held.released = true;
+        heldCount--;
+        sink.accept(held.event);
+    }
+
+    private static final class EntityBuffer {
+        private final PriorityQueue<Held> held = new PriorityQueue<>(
+                Comparator.comparingLong((Held h) -> h.event.getTimestamp()).thenComparingLong(h -> h.sequence));
+        private long maxTimestamp = Long.MIN_VALUE;
+    }
+
+    private static final class Held {
+        private final TrafficEvent event;
+        private final EntityBuffer buffer;
+        private final long sequence;
+        private final long arrivedMs;
+        private boolean released;
+
+        private Held(TrafficEvent event, EntityBuffer buffer, long sequence, long arrivedMs) {
+            this.event = event;
+            this.buffer = buffer;
+            this.sequence = sequence;
+            this.arrivedMs = arrivedMs;
+        }
+    }
+}
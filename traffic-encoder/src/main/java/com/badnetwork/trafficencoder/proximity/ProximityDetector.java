@@ -0,0 +1,104 @@
+package com.badnetwork.trafficencoder.proximity;
+
+import com.badnetwork.trafficencoder.config.EncoderProperties;
+import com.badnetwork.trafficencoder.model.ProximityEvent;
+import com.badnetwork.trafficencoder.model.TrafficEvent;
+import com.badnetwork.trafficencoder.transport.TrafficTransport;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Flags entities that come within encoder.proximity.threshold-meters of each other. Publishes an ENTER
+ * event when a pair comes within range and an EXIT event when it moves apart, keyed by the entity whose
+ * update caused the change. A pair whose positions are more than max-time-skew-ms apart is not in range,
+ * so an entity that far behind the newest position is dropped, with an EXIT for every pair it was in.
+ */
+@Component
+public class ProximityDetector {
+
+    private static final Logger log = LoggerFactory.getLogger(ProximityDetector.class);
+
+    private final EncoderProperties.Proximity config;
+    private final TrafficTransport transport;
+    private final ObjectMapper objectMapper;
+    private final ProximityGrid grid;
+    private long pairsInRange;
+    private long newestTimestamp = Long.MIN_VALUE;
+    private long lastEvictionTimestamp = Long.MIN_VALUE;
+
+    public ProximityDetector(EncoderProperties properties,
+                             TrafficTransport transport,
+                             ObjectMapper objectMapper) {
+        this.config = properties.getProximity();
+        this.transport = transport;
+        this.objectMapper = objectMapper;
+        this.grid = config.isEnabled()
+                ? new ProximityGrid(config.getThresholdMeters(), config.getMaxTimeSkewMs(), config.getInitialCapacity())
+                : null;
+        if (grid != null) {
+            log.info("Proximity detection enabled - threshold {}m, publishing to: {}",
+                    config.getThresholdMeters(), config.getTopic());
+        }
+    }
+
+    public boolean isEnabled() {
+        return grid != null;
+    }
+
+    public synchronized void update(TrafficEvent event) {
+        if (grid == null) {
+            return;
+        }
+        grid.update(event.getId(), event.getLat(), event.getLon(), event.getTimestamp(),
+                (slot, otherSlot, distanceMeters, entered) -> {
+                    pairsInRange += entered ? 1 : -1;
+                    publish(new ProximityEvent(entered ? "ENTER" : "EXIT", event.getId(), grid.idOf(otherSlot),
+                            distanceMeters, event.getTimestamp(), event.getLat(), event.getLon()));
+                });
+
+        newestTimestamp = Math.max(newestTimestamp, event.getTimestamp());
+        if (lastEvictionTimestamp == Long.MIN_VALUE) {
+            lastEvictionTimestamp = newestTimestamp;
+        } else if (newestTimestamp - lastEvictionTimestamp >= config.getMaxTimeSkewMs()) {
+            lastEvictionTimestamp = newestTimestamp;
+            evictStale();
+        }
+    }
+
+    /**
+     * Drops the entities too far behind the newest position to be in range of anything still updating.
+     */
+    private void evictStale() {
+        long evictedAt = newestTimestamp;
+        int evicted = grid.evictOlderThan(evictedAt - config.getMaxTimeSkewMs(),
+                (slot, otherSlot, distanceMeters, entered) -> {
+                    pairsInRange--;
+                    publish(new ProximityEvent("EXIT", grid.idOf(slot), grid.idOf(otherSlot), distanceMeters,
+                            evictedAt, grid.latOf(slot), grid.lonOf(slot)));
+                });
+        if (evicted > 0) {
+            log.debug("Dropped {} entities not updated for {}ms", evicted, config.getMaxTimeSkewMs());
+        }
+    }
+
+    public synchronized int getEntityCount() {
+        return grid == null ? 0 : grid.size();
+    }
+
+    public synchronized long getPairsInRange() {
+        return pairsInRange;
+    }
+
+    private void publish(ProximityEvent proximityEvent) {
+        try {
+            transport.send(config.getTopic(), proximityEvent.getId(), objectMapper.writeValueAsString(proximityEvent));
+            log.debug("Published proximity {} of {} and {} at {}m", proximityEvent.getType(),
+                    proximityEvent.getId(), proximityEvent.getOtherId(), proximityEvent.getDistanceMeters());
+        } catch (JsonProcessingException e) {
+            log.warn("Failed to serialize proximity event for entity {}: {}", proximityEvent.getId(), e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,415 @@
+package com.badnetwork.trafficencoder.proximity;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Uniform lat/lon grid of entities, with cells one threshold distance tall, tracking which pairs of
+ * entities are within that distance of each other. Each update moves the entity between cells in place and
+ * compares it only with the entities of the neighbouring cells, so the cost per update depends on local
+ * density rather than fleet size. Entities live in parallel arrays indexed by slot and are chained per cell
+ * through {@code next}/{@code prev}; cells map to the head of their chain. Slots of evicted entities are
+ * reused. Not thread-safe.
+ */
+final class ProximityGrid {
+
+    static final double METERS_PER_DEGREE = 111_320;
+    private static final int NONE = -1;
+    // Keeps the longitude span finite near the poles
+    private static final double MIN_COS_LAT = 0.01;
+
+    /** Receives each pair that came within, or moved out of, the threshold distance. */
+    interface Transition {
+        void changed(int slot, int otherSlot, double distanceMeters, boolean entered);
+    }
+
+    private final double thresholdMeters;
+    private final long maxTimeSkewMs;
+    private final double cellDeg;
+    private final int latCells;
+    private final int lonCells;
+    private final CellTable cells;
+    private final Map<String, Integer> slots;
+
+    private String[] ids;
+    private double[] lats;
+    private double[] lons;
+    private long[] timestamps;
+    private long[] cellKeys;
+    private int[] next;
+    private int[] prev;
+    private int[][] partners;
+    private int[] partnerCounts;
+    private int size;
+    // Slots below this have been used; the free ones among them are stacked in freeSlots
+    private int highWater;
+    private int[] freeSlots;
+    private int freeCount;
+
+    // Marks the slots found near the entity being updated; bumping the generation clears them all
+    private int[] nearStamps;
+    private int generation;
+    private int[] near = new int[16];
+    private double[] nearDistances = new double[16];
+
+    ProximityGrid(double thresholdMeters, long maxTimeSkewMs, int initialCapacity) {
+        this.thresholdMeters = thresholdMeters;
+        this.maxTimeSkewMs = maxTimeSkewMs;
+        this.cellDeg = thresholdMeters / METERS_PER_DEGREE;
+        this.latCells = (int) Math.ceil(180 / cellDeg);
+        this.lonCells = (int) Math.ceil(360 / cellDeg);
+        int capacity = Math.max(initialCapacity, 16);
+        this.cells = new CellTable(capacity);
+        this.slots = new HashMap<>(capacity * 4 / 3);
+        this.ids = new String[capacity];
+        this.lats = new double[capacity];
+        this.lons = new double[capacity];
+        this.timestamps = new long[capacity];
+        this.cellKeys = new long[capacity];
+        this.next = new int[capacity];
+        this.prev = new int[capacity];
+        this.partners = new int[capacity][];
+        this.partnerCounts = new int[capacity];
+        this.nearStamps = new int[capacity];
+        this.freeSlots = new int[capacity];
+    }
+
+    int size() {
+        return size;
+    }
+
+    String idOf(int slot) {
+        return ids[slot];
+    }
+
+    double latOf(int slot) {
+        return lats[slot];
+    }
+
+    double lonOf(int slot) {
+        return lons[slot];
+    }
+
+    /**
+     * Moves the entity to its new position and reports every pair it entered or left.
+     */
+    void update(String id, double lat, double lon, long timestamp, Transition transition) {
+        Integer existing = slots.get(id);
+        int slot;
+        long cellKey = cellOf(lat, lon);
+        if (existing == null) {
+            slot = allocate(id);
+            link(slot, cellKey);
+        } else {
+            slot = existing;
+            if (cellKeys[slot] != cellKey) {
+                unlink(slot);
+                link(slot, cellKey);
+            }
+        }
+        lats[slot] = lat;
+        lons[slot] = lon;
+        timestamps[slot] = timestamp;
+
+        int nearCount = findNear(slot);
+        int[] current = partners[slot];
+        for (int i = 0; i < nearCount; i++) {
+            int other = near[i];
+            if (!contains(current, partnerCounts[slot], other)) {
+                addPartner(slot, other);
+                addPartner(other, slot);
+                current = partners[slot];
+                transition.changed(slot, other, nearDistances[i], true);
+            }
+        }
+        for (int i = partnerCounts[slot] - 1; i >= 0; i--) {
+            int other = partners[slot][i];
+            if (nearStamps[other] != generation) {
+                removePartner(slot, other);
+                removePartner(other, slot);
+                transition.changed(slot, other, distanceMeters(slot, other), false);
+            }
+        }
+    }
+
+    /**
+     * Removes every entity last updated before {@code cutoff}, reporting each pair it was in as left (before
+     * its slot is reused), and frees its slot. Scans every slot, so it is meant to run once in a while.
+     *
+     * @return the number of entities removed
+     */
+    int evictOlderThan(long cutoff, Transition transition) {
+        int evicted = 0;
+        for (int slot = 0; slot < highWater; slot++) {
+            if (ids[slot] == null || timestamps[slot] >= cutoff) {
+                continue;
+            }
+            for (int i = partnerCounts[slot] - 1; i >= 0; i--) {
+                int other = partners[slot][i];
+                removePartner(other, slot);
+                transition.changed(slot, other, distanceMeters(slot, other), false);
+            }
+            unlink(slot);
+            slots.remove(ids[slot]);
+            ids[slot] = null;
+            partners[slot] = null;
+            partnerCounts[slot] = 0;
+            freeSlots[freeCount++] = slot;
+            size--;
+            evicted++;
+        }
+        return evicted;
+    }
+
+    /**
+     * @return the number of entities within the threshold of the slot, stored in {@code near}
+     */
+    private int findNear(int slot) {
+        if (++generation == 0) {
+            Arrays.fill(nearStamps, 0);
+            generation = 1;
+        }
+        double lat = lats[slot];
+        int row = latIndex(lat);
+        int column = lonIndex(lons[slot]);
+        double cosLat = Math.max(Math.cos(Math.toRadians(lat)), MIN_COS_LAT);
+        // A cell is one threshold tall but only cos(lat) of one threshold wide
+        int span = (int) Math.min(Math.ceil(1 / cosLat), lonCells / 2);
+
+        int count = 0;
+        for (int r = Math.max(row - 1, 0); r <= Math.min(row + 1, latCells - 1); r++) {
+            for (int c = column - span; c <= column + span; c++) {
+                int wrapped = c < 0 ? c + lonCells : c >= lonCells ? c - lonCells : c;
+                for (int other = cells.get(key(r, wrapped)); other != NONE; other = next[other]) {
+                    if (other == slot || Math.abs(timestamps[other] - timestamps[slot]) > maxTimeSkewMs) {
+                        continue;
+                    }
+                    double distance = distanceMeters(slot, other);
+                    if (distance <= thresholdMeters) {
+                        if (count == near.length) {
+                            near = Arrays.copyOf(near, count * 2);
+                            nearDistances = Arrays.copyOf(nearDistances, count * 2);
+                        }
+                        near[count] = other;
+                        nearDistances[count++] = distance;
+                        nearStamps[other] = generation;
+                    }
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Equirectangular distance, accurate to well under a percent at proximity ranges.
+     */
+    double distanceMeters(int a, int b) {
+        double dLat = lats[b] - lats[a];
+        double dLon = lons[b] - lons[a];
+        if (dLon > 180) {
+            dLon -= 360;
+        } else if (dLon < -180) {
+            dLon += 360;
+        }
+        double x = dLon * Math.cos(Math.toRadians((lats[a] + lats[b]) / 2));
+        return Math.sqrt(x * x + dLat * dLat) * METERS_PER_DEGREE;
+    }
+
+    private int allocate(String id) {
+        int slot;
+        if (freeCount > 0) {
+            slot = freeSlots[--freeCount];
+        } else {
+            if (highWater == ids.length) {
+                grow();
+            }
+            slot = highWater++;
+        }
+        size++;
+        ids[slot] = id;
+        partners[slot] = new int[2];
+        slots.put(id, slot);
+        return slot;
+    }
+
+    private void grow() {
+        int capacity = ids.length * 2;
+        ids = Arrays.copyOf(ids, capacity);
+        lats = Arrays.copyOf(lats, capacity);
+        lons = Arrays.copyOf(lons, capacity);
+        timestamps = Arrays.copyOf(timestamps, capacity);
+        cellKeys = Arrays.copyOf(cellKeys, capacity);
+        next = Arrays.copyOf(next, capacity);
+        prev = Arrays.copyOf(prev, capacity);
+        partners = Arrays.copyOf(partners, capacity);
+        partnerCounts = Arrays.copyOf(partnerCounts, capacity);
+        nearStamps = Arrays.copyOf(nearStamps, capacity);
+        freeSlots = Arrays.copyOf(freeSlots, capacity);
+    }
+
+    private void link(int slot, long cellKey) {
+        int head = cells.get(cellKey);
+        cellKeys[slot] = cellKey;
+        prev[slot] = NONE;
+        next[slot] = head;
+        if (head != NONE) {
+            prev[head] = slot;
+        }
+        cells.put(cellKey, slot);
+    }
+
+    private void unlink(int slot) {
+        if (prev[slot] != NONE) {
+            next[prev[slot]] = next[slot];
+        } else if (next[slot] != NONE) {
+            cells.put(cellKeys[slot], next[slot]);
+        } else {
+            cells.remove(cellKeys[slot]);
+        }
+        if (next[slot] != NONE) {
+            prev[next[slot]] = prev[slot];
+        }
+    }
+
+    private void addPartner(int slot, int other) {
+        int count = partnerCounts[slot];
+        if (count == partners[slot].length) {
+            partners[slot] = Arrays.copyOf(partners[slot], count * 2);
+        }
+        partners[slot][count] = other;
+        partnerCounts[slot] = count + 1;
+    }
+
+    private void removePartner(int slot, int other) {
+        int[] list = partners[slot];
+        int count = partnerCounts[slot];
+        for (int i = 0; i < count; i++) {
+            if (list[i] == other) {
+                list[i] = list[count - 1];
+                partnerCounts[slot] = count - 1;
+                return;
+            }
+        }
+    }
+
+    private static boolean contains(int[] list, int count, int value) {
+        for (int i = 0; i < count; i++) {
+            if (list[i] == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private long cellOf(double lat, double lon) {
+        return key(latIndex(lat), lonIndex(lon));
+    }
+
+    private int latIndex(double lat) {
+        return Math.clamp((int) Math.floor((lat + 90) / cellDeg), 0, latCells - 1);
+    }
+
+    private int lonIndex(double lon) {
+        double offset = lon >= -180 && lon <= 180 ? lon + 180 : ((lon + 180) % 360 + 360) % 360;
+        return Math.clamp((int) Math.floor(offset / cellDeg), 0, lonCells - 1);
+    }
+
+    private static long key(int latIndex, int lonIndex) {
+        return ((long) latIndex << 32) | (lonIndex & 0xffffffffL);
+    }
+
+    /**
+     * Open-addressing map from occupied cell to the first slot of its chain, without boxing.
+     */
+    private static final class CellTable {
+
+        private static final long EMPTY = Long.MIN_VALUE;
+
+        private long[] keys;
+        private int[] heads;
+        private int mask;
+        private int size;
+
+        CellTable(int expected) {
+            int capacity = Integer.highestOneBit(Math.max(expected, 8) * 2 - 1) << 1;
+            keys = new long[capacity];
+            heads = new int[capacity];
+            Arrays.fill(keys, EMPTY);
+            mask = capacity - 1;
+        }
+
+        int get(long key) {
+            for (int i = index(key); ; i = (i + 1) & mask) {
+                if (keys[i] == key) {
+                    return heads[i];
+                }
+                if (keys[i] == EMPTY) {
+                    return NONE;
+                }
+            }
+        }
+
+        void put(long key, int head) {
+            int i = index(key);
+            while (keys[i] != EMPTY && keys[i] != key) {
+                i = (i + 1) & mask;
+            }
+            if (keys[i] == EMPTY) {
+                keys[i] = key;
+                if (++size * 2 > keys.length) {
+                    heads[i] = head;
+                    rehash();
+                    return;
+                }
+            }
+            heads[i] = head;
+        }
+
+        void remove(long key) {
+            int i = index(key);
+            while (keys[i] != key) {
+                if (keys[i] == EMPTY) {
+                    return;
+                }
+                i = (i + 1) & mask;
+            }
+            // Backward-shift deletion keeps every probe chain unbroken without tombstones
+            int gap = i;
+            for (int j = (gap + 1) & mask; keys[j] != EMPTY; j = (j + 1) & mask) {
+                int home = index(keys[j]);
+                if (((j - home) & mask) >= ((j - gap) & mask)) {
+                    keys[gap] = keys[j];
+                    heads[gap] = heads[j];
+                    gap = j;
+                }
+            }
+            keys[gap] = EMPTY;
+            size--;
+        }
+
+        private void rehash() {
+            long[] oldKeys = keys;
+            int[] oldHeads = heads;
+            keys = new long[oldKeys.length * 2];
+            heads = new int[oldKeys.length * 2];
+            Arrays.fill(keys, EMPTY);
+            mask = keys.length - 1;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != EMPTY) {
+                    int j = index(oldKeys[i]);
+                    while (keys[j] != EMPTY) {
+                        j = (j + 1) & mask;
+                    }
+                    keys[j] = oldKeys[i];
+                    heads[j] = oldHeads[i];
+                }
+            }
+        }
+
+        private int index(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32)) & mask;
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.badnetwork.trafficencoder.readiness;
+
+import com.badnetwork.readiness.KafkaReadiness;
+import com.badnetwork.trafficencoder.config.EncoderProperties;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.core.KafkaAdmin;
+
+/**
+ * The encoder is ready once it is actually consuming: the broker answers and every running listener has
+ * been assigned partitions. While ready, encoder.readiness.file exists, so an orchestrator can wait on it
+ * instead of sleeping.
+ */
+@Configuration
+@ConditionalOnProperty(name = "encoder.readiness.enabled", havingValue = "true", matchIfMissing = true)
+public class KafkaReadinessConfig {
+
+    @Bean
+    public KafkaReadiness kafkaReadiness(EncoderProperties properties, KafkaAdmin kafkaAdmin,
+                                         KafkaListenerEndpointRegistry listenerRegistry) {
+        EncoderProperties.Readiness readiness = properties.getReadiness();
+        return new KafkaReadiness(kafkaAdmin, readiness.getCheckIntervalMs(), readiness.getFile(),
+                "consuming " + properties.getKafka().getSourceTopic(),
+                KafkaReadiness.listenersAssigned(listenerRegistry));
+    }
+}
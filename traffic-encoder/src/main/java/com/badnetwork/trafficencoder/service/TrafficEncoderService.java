@@ -1,18 +1,24 @@
 package com.badnetwork.trafficencoder.service;
 
 import com.badnetwork.trafficencoder.config.EncoderProperties;
+import com.badnetwork.trafficencoder.geofence.GeofenceEngine;
 import com.badnetwork.trafficencoder.model.DeltaTrafficEvent;
 import com.badnetwork.trafficencoder.model.TrafficEvent;
+import com.badnetwork.trafficencoder.ordering.EventTimeReorderer;
+import com.badnetwork.trafficencoder.proximity.ProximityDetector;
+import com.badnetwork.trafficencoder.state.EntityStateStore;
+import com.badnetwork.trafficencoder.state.Position;
+import com.badnetwork.trafficencoder.transport.TrafficTransport;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import lombok.Data;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.kafka.annotation.KafkaListener;
-import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.stereotype.Service;
 
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Service
 public class TrafficEncoderService {
@@ -20,20 +26,43 @@ public class TrafficEncoderService {
     private static final Logger log = LoggerFactory.getLogger(TrafficEncoderService.class);
 
     private final EncoderProperties properties;
-    private final KafkaTemplate<String, String> kafkaTemplate;
+    private final TrafficTransport transport;
     private final ObjectMapper objectMapper;
-    private final ConcurrentHashMap<String, Position> lastPositions = new ConcurrentHashMap<>();
+    private final ProximityDetector proximityDetector;
+    private final GeofenceEngine geofenceEngine;
+    private final EntityStateStore lastPositions;
+    private final EventTimeReorderer reorderer;
+    private final AtomicLong lateEvents = new AtomicLong();
 
     public TrafficEncoderService(EncoderProperties properties,
-                                  KafkaTemplate<String, String> kafkaTemplate,
-                                  ObjectMapper objectMapper) {
+                                  TrafficTransport transport,
+                                  ObjectMapper objectMapper,
+                                  EntityStateStore lastPositions,
+                                  ProximityDetector proximityDetector,
+                                  GeofenceEngine geofenceEngine) {
         this.properties = properties;
-        this.kafkaTemplate = kafkaTemplate;
+        this.transport = transport;
         this.objectMapper = objectMapper;
+        this.lastPositions = lastPositions;
+        this.proximityDetector = proximityDetector;
+        this.geofenceEngine = geofenceEngine;
+        this.reorderer = new EventTimeReorderer(properties.getOrdering(), this::process);
         log.info("TrafficEncoderService initialized - will consume from: {}", properties.getKafka().getSourceTopic());
     }
 
-    @KafkaListener(topics = "${encoder.kafka.source-topic}", groupId = "${encoder.kafka.consumer-group-id}")
+    @PostConstruct
+    public void start() {
+        reorderer.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        reorderer.stop();
+    }
+
+    // Not started when the in-process pipeline feeds consume() instead
+    @KafkaListener(topics = "${encoder.kafka.source-topic}", groupId = "${encoder.kafka.consumer-group-id}",
+            autoStartup = "${spring.kafka.listener.auto-startup:true}")
     public void consume(String message) {
         log.info("Received message: {}", message);
         try {
@@ -41,7 +70,7 @@ public class TrafficEncoderService {
             log.info("Parsed event for entity: {}", event.getId());
             
             publishOriginal(event, message);
-            publishDelta(event);
+            reorderer.offer(event);
             
         } catch (JsonProcessingException e) {
             log.warn("Failed to deserialize traffic event: {}", e.getMessage());
@@ -50,15 +79,46 @@ public class TrafficEncoderService {
         }
     }
 
+    /**
+     * Applies one event, in event-time order per entity when encoder.ordering is enabled.
+     */
+    private void process(TrafficEvent event) {
+        try {
+            if (publishDelta(event)) {
+                proximityDetector.update(event);
+                geofenceEngine.update(event);
+            }
+        } catch (Exception e) {
+            log.error("Error processing traffic event: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * @return events dropped for arriving after a later event of the same entity had been applied
+     */
+    public long getLateEvents() {
+        return lateEvents.get();
+    }
+
     private void publishOriginal(TrafficEvent event, String originalMessage) {
         String topic = properties.getKafka().getOriginalTopic();
-        kafkaTemplate.send(topic, event.getId(), originalMessage);
+        transport.send(topic, event.getId(), originalMessage);
         log.debug("Published original event for entity {} to {}", event.getId(), topic);
     }
 
-    private void publishDelta(TrafficEvent event) {
+    /**
+     * @return false if the event was late and dropped
+     */
+    private boolean publishDelta(TrafficEvent event) {
         String entityId = event.getId();
         Position lastPos = lastPositions.get(entityId);
+        if (lastPos != null && event.getTimestamp() <= lastPos.timestamp() && properties.getOrdering().isEnabled()
+                && properties.getOrdering().getLatePolicy() == EncoderProperties.LatePolicy.DROP) {
+            lateEvents.incrementAndGet();
+            log.debug("Dropped late event for entity {}: {} is not after {}",
+                    entityId, event.getTimestamp(), lastPos.timestamp());
+            return false;
+        }
         
         double deltaLat;
         double deltaLon;
@@ -68,11 +128,11 @@ public class TrafficEncoderService {
             deltaLat = 0.0;
             deltaLon = 0.0;
         } else {
-            deltaLat = event.getLat() - lastPos.getLat();
-            deltaLon = event.getLon() - lastPos.getLon();
+            deltaLat = event.getLat() - lastPos.lat();
+            deltaLon = event.getLon() - lastPos.lon();
         }
         
-        lastPositions.put(entityId, new Position(event.getLat(), event.getLon()));
+        lastPositions.put(entityId, new Position(event.getLat(), event.getLon(), event.getTimestamp()));
         
         DeltaTrafficEvent deltaEvent = new DeltaTrafficEvent(
                 entityId,
@@ -87,17 +147,12 @@ public class TrafficEncoderService {
         try {
             String json = objectMapper.writeValueAsString(deltaEvent);
             String topic = properties.getKafka().getDeltaTopic();
-            kafkaTemplate.send(topic, entityId, json);
+            transport.send(topic, entityId, json);
             log.debug("Published delta event for entity {} to {} (deltaLat={}, deltaLon={})",
                     entityId, topic, deltaLat, deltaLon);
         } catch (JsonProcessingException e) {
             log.warn("Failed to serialize delta event for entity {}: {}", entityId, e.getMessage());
         }
-    }
-
-    @Data
-    private static class Position {
-        private final double lat;
-        private final double lon;
+        return true;
     }
 }
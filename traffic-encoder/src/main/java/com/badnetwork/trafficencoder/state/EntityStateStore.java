@@ -0,0 +1,16 @@
+package com.badnetwork.trafficencoder.state;
+
+/**
+ * The encoder's last position per entity; encoder.state.backend picks the implementation.
+ */
+public interface EntityStateStore {
+
+    /**
+     * @return the entity's last position, or null if it has not been seen
+     */
+    Position get(String id);
+
+    void put(String id, Position position);
+
+    long size();
+}
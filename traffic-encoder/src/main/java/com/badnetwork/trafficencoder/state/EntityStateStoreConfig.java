@@ -0,0 +1,24 @@
+package com.badnetwork.trafficencoder.state;
+
+import com.badnetwork.trafficencoder.config.EncoderProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Picks the backend when the context starts rather than through bean conditions, which AOT images fix
+ * at build time, so encoder.state.backend still applies to the prebuilt Docker image.
+ */
+@Configuration
+public class EntityStateStoreConfig {
+
+    @Bean
+    public EntityStateStore entityStateStore(EncoderProperties properties) {
+        String backend = properties.getState().getBackend();
+        return switch (backend) {
+            case "memory" -> new InMemoryEntityStateStore();
+            case "mapped" -> new MappedEntityStateStore(properties);
+            default -> throw new IllegalStateException(
+                    "Unknown encoder.state.backend " + backend + "; expected memory or mapped");
+        };
+    }
+}
@@ -0,0 +1,26 @@
+package com.badnetwork.trafficencoder.state;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The default backend: every entity on the heap, nothing kept across restarts.
+ */
+public class InMemoryEntityStateStore implements EntityStateStore {
+
+    private final ConcurrentHashMap<String, Position> positions = new ConcurrentHashMap<>();
+
+    @Override
+    public Position get(String id) {
+        return positions.get(id);
+    }
+
+    @Override
+    public void put(String id, Position position) {
+        positions.put(id, position);
+    }
+
+    @Override
+    public long size() {
+        return positions.size();
+    }
+}
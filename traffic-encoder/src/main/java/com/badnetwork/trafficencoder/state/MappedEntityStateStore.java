@@ -0,0 +1,294 @@
+package com.badnetwork.trafficencoder.state;
+
+import com.badnetwork.trafficencoder.config.EncoderProperties;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Disk-backed positions for fleets too large for the heap, reused across restarts. Two memory-mapped
+ * files in encoder.state.directory hold them:
+ * <ul>
+ *   <li>{@value #DATA_FILE}: a header, then one record per entity in first-seen order: key length + 1
+ *       (short), UTF-8 key, lat and lon (doubles) and event time (long), updated in place</li>
+ *   <li>{@value #INDEX_FILE}: an open-addressing table of (key hash, record offset) slots, doubled past
+ *       {@value #MAX_LOAD} load, and rebuilt from the data file if it is missing</li>
+ * </ul>
+ * The most recently used cache-entries entities are cached on the heap with their record offset, so the
+ * working set is looked up and written without probing; everything else costs page cache and disk only.
+ */
+public class MappedEntityStateStore implements EntityStateStore {
+
+    private static final Logger log = LoggerFactory.getLogger(MappedEntityStateStore.class);
+
+    static final String DATA_FILE = "entities.dat";
+    static final String INDEX_FILE = "entities.idx";
+    private static final long MAGIC = 0x454E4353_54415445L;
+    private static final long VERSION = 2;
+    private static final int HEADER_BYTES = 64;
+    private static final int COUNT_AT = 16;
+    private static final int DATA_END_AT = 24;
+    private static final int CAPACITY_AT = 32;
+    private static final int SLOT_BYTES = 16;
+    private static final int VALUE_BYTES = 24;
+    private static final double MAX_LOAD = 0.7;
+
+    private final Path directory;
+    private final MappedFile data;
+    private final Map<String, Cached> cache;
+    private MappedFile index;
+    private long capacity;
+    private long count;
+    private long dataEnd;
+    // Slot where the last unsuccessful find() stopped, i.e. where that key is inserted
+    private long freeSlot;
+
+    public MappedEntityStateStore(EncoderProperties properties) {
+        EncoderProperties.State config = properties.getState();
+        this.directory = Path.of(config.getDirectory());
+        int cacheEntries = config.getCacheEntries();
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Cached> eldest) {
+                return size() > cacheEntries;
+            }
+        };
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot create entity state directory " + directory, e);
+        }
+
+        this.data = new MappedFile(directory.resolve(DATA_FILE), Long.MAX_VALUE);
+        if (data.getLong(0) == MAGIC) {
+            if (data.getLong(8) != VERSION) {
+                throw new IllegalStateException("Entity state in " + directory + " has format version "
+                        + data.getLong(8) + ", expected " + VERSION + "; move it aside to start afresh");
+            }
+            count = data.getLong(COUNT_AT);
+            dataEnd = data.getLong(DATA_END_AT);
+            capacity = data.getLong(CAPACITY_AT);
+            Path indexPath = directory.resolve(INDEX_FILE);
+            if (Files.isRegularFile(indexPath) && sizeOf(indexPath) == capacity * SLOT_BYTES) {
+                index = new MappedFile(indexPath, capacity * SLOT_BYTES);
+            } else {
+                log.warn("Entity state index {} missing or truncated, rebuilding it", indexPath);
+                rebuildIndex(capacity);
+            }
+        } else {
+            capacity = Long.highestOneBit(Math.max(config.getInitialCapacity(), 1024) - 1) << 1;
+            dataEnd = HEADER_BYTES;
+            data.putLong(0, MAGIC);
+            data.putLong(8, VERSION);
+            writeHeader();
+            index = new MappedFile(directory.resolve(INDEX_FILE), capacity * SLOT_BYTES);
+        }
+        log.info("Entity state in {}: {} entities, index capacity {}, caching {}",
+                directory, count, capacity, cacheEntries);
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        writeHeader();
+        index.close();
+        data.close();
+    }
+
+    @Override
+    public synchronized Position get(String id) {
+        Cached cached = cache.get(id);
+        if (cached == null) {
+            long valueAt = find(id);
+            if (valueAt < 0) {
+                return null;
+            }
+            cached = new Cached(valueAt, data.getDouble(valueAt), data.getDouble(valueAt + 8),
+                    data.getLong(valueAt + 16));
+            cache.put(id, cached);
+        }
+        return new Position(cached.lat, cached.lon, cached.timestamp);
+    }
+
+    @Override
+    public synchronized void put(String id, Position position) {
+        Cached cached = cache.get(id);
+        if (cached == null) {
+            long valueAt = find(id);
+            cached = new Cached(valueAt < 0 ? append(id) : valueAt, 0, 0, 0);
+            cache.put(id, cached);
+        }
+        cached.lat = position.lat();
+        cached.lon = position.lon();
+        cached.timestamp = position.timestamp();
+        data.putDouble(cached.valueAt, cached.lat);
+        data.putDouble(cached.valueAt + 8, cached.lon);
+        data.putLong(cached.valueAt + 16, cached.timestamp);
+    }
+
+    @Override
+    public synchronized long size() {
+        return count;
+    }
+
+    /**
+     * @return the position of the key's value in the data file, or -1 if it is not stored
+     */
+    private long find(String id) {
+        long hash = hash(id);
+        byte[] key = null;
+        long mask = capacity - 1;
+        for (long slot = hash & mask; ; slot = (slot + 1) & mask) {
+            long recordAt = index.getLong(slot * SLOT_BYTES + 8);
+            if (recordAt == 0) {
+                freeSlot = slot;
+                return -1;
+            }
+            if (index.getLong(slot * SLOT_BYTES) == hash) {
+                if (key == null) {
+                    key = id.getBytes(StandardCharsets.UTF_8);
+                }
+                if (keyMatches(recordAt, key)) {
+                    return recordAt + 2 + key.length;
+                }
+            }
+        }
+    }
+
+    private boolean keyMatches(long recordAt, byte[] key) {
+        if (data.getShort(recordAt) - 1 != key.length) {
+            return false;
+        }
+        byte[] stored = new byte[key.length];
+        data.get(recordAt + 2, stored);
+        return Arrays.equals(stored, key);
+    }
+
+    /**
+     * Appends a record for a key find() just missed and indexes it in the slot find() stopped at.
+     */
+    private long append(String id) {
+        byte[] key = id.getBytes(StandardCharsets.UTF_8);
+        if (key.length >= Short.MAX_VALUE) {
+            throw new IllegalArgumentException("Entity id too long to store: " + key.length + " bytes");
+        }
+        int recordBytes = 2 + key.length + VALUE_BYTES;
+        long recordAt = MappedFile.alignWithinChunk(dataEnd, recordBytes);
+        data.putShort(recordAt, (short) (key.length + 1));
+        data.put(recordAt + 2, key);
+        dataEnd = recordAt + recordBytes;
+
+        // The offset goes in last: a non-zero offset is what marks the slot taken
+        index.putLong(freeSlot * SLOT_BYTES, hash(id));
+        index.putLong(freeSlot * SLOT_BYTES + 8, recordAt);
+        count++;
+        writeHeader();
+        if (count > capacity * MAX_LOAD) {
+            rebuildIndex(capacity * 2);
+        }
+        return recordAt + 2 + key.length;
+    }
+
+    /**
+     * Writes a new index of the given capacity from the data file, then swaps it in.
+     */
+    private void rebuildIndex(long newCapacity) {
+        Path target = directory.resolve(INDEX_FILE);
+        Path building = directory.resolve(INDEX_FILE + ".tmp");
+        try {
+            Files.deleteIfExists(building);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot replace " + building, e);
+        }
+        MappedFile rebuilt = new MappedFile(building, newCapacity * SLOT_BYTES);
+        long mask = newCapacity - 1;
+        long indexed = 0;
+        for (long recordAt = HEADER_BYTES; recordAt < dataEnd; ) {
+            int keyLength = data.getShort(recordAt) - 1;
+            if (keyLength < 0) {
+                // Padding up to the next chunk
+                recordAt = (recordAt | (MappedFile.CHUNK_BYTES - 1)) + 1;
+                continue;
+            }
+            byte[] key = new byte[keyLength];
+            data.get(recordAt + 2, key);
+            long hash = hash(new String(key, StandardCharsets.UTF_8));
+            long slot = hash & mask;
+            while (rebuilt.getLong(slot * SLOT_BYTES + 8) != 0) {
+                slot = (slot + 1) & mask;
+            }
+            rebuilt.putLong(slot * SLOT_BYTES, hash);
+            rebuilt.putLong(slot * SLOT_BYTES + 8, recordAt);
+            indexed++;
+            recordAt += 2 + keyLength + VALUE_BYTES;
+        }
+        rebuilt.close();
+
+        if (index != null) {
+            index.close();
+        }
+        try {
+            Files.move(building, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot replace " + target, e);
+        }
+        index = new MappedFile(target, newCapacity * SLOT_BYTES);
+        capacity = newCapacity;
+        count = indexed;
+        writeHeader();
+        log.info("Entity state index rebuilt with capacity {} for {} entities", newCapacity, indexed);
+    }
+
+    private void writeHeader() {
+        data.putLong(COUNT_AT, count);
+        data.putLong(DATA_END_AT, dataEnd);
+        data.putLong(CAPACITY_AT, capacity);
+    }
+
+    private static long sizeOf(Path path) {
+        try {
+            return Files.size(path);
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * FNV-1a over the UTF-16 chars, finished with MurmurHash3's mixer so the low bits pick slots well.
+     */
+    private static long hash(String id) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < id.length(); i++) {
+            h ^= id.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        return h ^ (h >>> 33);
+    }
+
+    private static final class Cached {
+        private final long valueAt;
+        private double lat;
+        private double lon;
+        private long timestamp;
+
+        private Cached(long valueAt, double lat, double lon, long timestamp) {
+            this.valueAt = valueAt;
+            this.lat = lat;
+            this.lon = lon;
+            this.timestamp = timestamp;
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.badnetwork.trafficencoder.state;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * A file accessed through memory-mapped chunks of {@value #CHUNK_BYTES} bytes, mapped on first use, so it
+ * can exceed the 2 GB limit of a single mapping. The file grows as chunks past its end are mapped; pages
+ * never written stay sparse. Values must not straddle a chunk boundary. Not thread-safe.
+ */
+final class MappedFile implements AutoCloseable {
+
+    static final int CHUNK_SHIFT = 30;
+    static final long CHUNK_BYTES = 1L << CHUNK_SHIFT;
+    private static final long CHUNK_MASK = CHUNK_BYTES - 1;
+
+    private final Path path;
+    private final FileChannel channel;
+    // Bytes the file spans; chunks are never mapped past it
+    private final long length;
+    private MappedByteBuffer[] chunks = new MappedByteBuffer[0];
+
+    /**
+     * @param length the fixed size of the file, or {@link Long#MAX_VALUE} to map whole chunks as it grows
+     */
+    MappedFile(Path path, long length) {
+        this.path = path;
+        this.length = length;
+        try {
+            this.channel = FileChannel.open(path,
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open " + path, e);
+        }
+    }
+
+    Path path() {
+        return path;
+    }
+
+    long getLong(long position) {
+        return chunk(position).getLong(offset(position));
+    }
+
+    void putLong(long position, long value) {
+        chunk(position).putLong(offset(position), value);
+    }
+
+    double getDouble(long position) {
+        return chunk(position).getDouble(offset(position));
+    }
+
+    void putDouble(long position, double value) {
+        chunk(position).putDouble(offset(position), value);
+    }
+
+    short getShort(long position) {
+        return chunk(position).getShort(offset(position));
+    }
+
+    void putShort(long position, short value) {
+        chunk(position).putShort(offset(position), value);
+    }
+
+    void get(long position, byte[] destination) {
+        chunk(position).get(offset(position), destination);
+    }
+
+    void put(long position, byte[] source) {
+        chunk(position).put(offset(position), source);
+    }
+
+    /**
+     * @return the position itself if a value of that many bytes fits in its chunk, else the next chunk's start
+     */
+    static long alignWithinChunk(long position, int bytes) {
+        return (position & CHUNK_MASK) + bytes > CHUNK_BYTES ? (position | CHUNK_MASK) + 1 : position;
+    }
+
+    void force() {
+        for (MappedByteBuffer chunk : chunks) {
+            if (chunk != null) {
+                chunk.force();
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        force();
+        chunks = new MappedByteBuffer[0];
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot close " + path, e);
+        }
+    }
+
+    private MappedByteBuffer chunk(long position) {
+        int index = (int) (position >>> CHUNK_SHIFT);
+        if (index >= chunks.length) {
+            chunks = Arrays.copyOf(chunks, index + 1);
+        }
+        MappedByteBuffer chunk = chunks[index];
+        if (chunk == null) {
+            long start = (long) index << CHUNK_SHIFT;
+            try {
+                chunk = channel.map(FileChannel.MapMode.READ_WRITE, start, Math.min(CHUNK_BYTES, length - start));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot map " + path + " at " + start, e);
+            }
+            chunks[index] = chunk;
+        }
+        return chunk;
+    }
+
+    private static int offset(long position) {
+        return (int) (position & CHUNK_MASK);
+    }
+}
@@ -0,0 +1,7 @@
+package com.badnetwork.trafficencoder.state;
+
+/**
+ * An entity's last absolute position and its event time, as the encoder computes its next delta from.
+ */
+public record Position(double lat, double lon, long timestamp) {
+}
@@ -0,0 +1,14 @@
+package com.badnetwork.trafficencoder.transport;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Publishes encoded events to the next stage, over Kafka unless the encoder runs inside the in-process pipeline.
+ */
+public interface TrafficTransport {
+
+    /**
+     * @return completes with the record's position in the topic (its offset on Kafka) once the transport has taken it
+     */
+    CompletableFuture<Long> send(String topic, String key, String value);
+}
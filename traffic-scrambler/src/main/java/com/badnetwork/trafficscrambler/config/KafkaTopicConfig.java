@@ -0,0 +1,20 @@
+package com.badnetwork.trafficscrambler.config;
+
+import org.apache.kafka.clients.admin.NewTopic;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.TopicBuilder;
+
+@Configuration
+public class KafkaTopicConfig {
+
+    @Bean
+    public NewTopic chaosConfigTopic(ScramblerProperties properties) {
+        // Single partition keeps config records totally ordered; compaction keeps only the latest
+        return TopicBuilder.name(properties.getKafka().getConfigTopic())
+                .partitions(1)
+                .replicas(1)
+                .compact()
+                .build();
+    }
+}
@@ -1,18 +1,54 @@
 package com.badnetwork.trafficscrambler.config;
 
+import com.badnetwork.trafficscrambler.model.ChaosConfig;
 import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 @ConfigurationProperties(prefix = "scrambler")
 @Data
 public class ScramblerProperties {
     
     private KafkaProperties kafka = new KafkaProperties();
+    private Backpressure backpressure = new Backpressure();
+    private Readiness readiness = new Readiness();
+    /** Named chaos links; when empty a single "default" link is built from kafka.source-topic/chaos-topic. */
+    private Map<String, Link> links = new LinkedHashMap<>();
     
     @Data
     public static class KafkaProperties {
         private String sourceTopic;
         private String chaosTopic;
+        private String configTopic;
         private String consumerGroupId;
+        private int maxInFlight = 1000;
+    }
+
+    @Data
+    public static class Backpressure {
+        private long highWaterMessages = 50_000;
+        private long lowWaterMessages = 10_000;
+        private long highWaterBytes = 64L * 1024 * 1024;
+        private long lowWaterBytes = 16L * 1024 * 1024;
+    }
+
+    @Data
+    public static class Readiness {
+        private boolean enabled = true;
+        /** Created while ready and deleted otherwise, besides /actuator/health/readiness; none when empty. */
+        private String file = "";
+        private long checkIntervalMs = 1000;
+    }
+
+    @Data
+    public static class Link {
+        private String sourceTopic;
+        private String chaosTopic;
+        /** Only records whose key starts with this prefix; empty takes every key on the source topic. */
+        private String keyPrefix;
+        /** Initial chaos config, until one is applied from the config topic. */
+        private ChaosConfig chaos = new ChaosConfig();
     }
 }
@@ -2,12 +2,20 @@ package com.badnetwork.trafficscrambler.controller;
 
 import com.badnetwork.trafficscrambler.model.ChaosConfig;
 import com.badnetwork.trafficscrambler.model.ChaosMetrics;
+import com.badnetwork.trafficscrambler.service.ChaosConfigSync;
 import com.badnetwork.trafficscrambler.service.ChaosService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The un-named endpoints act on the default link; /chaos/links/{name} addresses any configured link.
+ */
 @RestController
 @RequestMapping("/chaos")
 @CrossOrigin(origins = "http://localhost:3000")
@@ -16,16 +24,16 @@ public class ChaosController {
     private static final Logger log = LoggerFactory.getLogger(ChaosController.class);
 
     private final ChaosService chaosService;
+    private final ChaosConfigSync chaosConfigSync;
 
-    public ChaosController(ChaosService chaosService) {
+    public ChaosController(ChaosService chaosService, ChaosConfigSync chaosConfigSync) {
         this.chaosService = chaosService;
+        this.chaosConfigSync = chaosConfigSync;
     }
 
     @PostMapping
     public ResponseEntity<ChaosConfig> updateChaosConfig(@RequestBody ChaosConfig config) {
-        log.info("Received chaos config update: {}", config);
-        chaosService.updateChaosConfig(config);
-        return ResponseEntity.ok(config);
+        return updateLinkConfig(chaosService.getDefaultLinkName(), config);
     }
 
     @GetMapping
@@ -40,8 +48,54 @@ public class ChaosController {
 
     @DeleteMapping
     public ResponseEntity<Void> resetChaosConfig() {
-        log.info("Resetting chaos config to defaults");
-        chaosService.updateChaosConfig(new ChaosConfig());
-        return ResponseEntity.noContent().build();
+        return resetLinkConfig(chaosService.getDefaultLinkName());
+    }
+
+    @GetMapping("/links")
+    public ResponseEntity<Map<String, ChaosConfig>> getLinks() {
+        Map<String, ChaosConfig> configs = new LinkedHashMap<>();
+        chaosService.getLinkNames().forEach(name -> configs.put(name, chaosService.getChaosConfig(name)));
+        return ResponseEntity.ok(configs);
+    }
+
+    @GetMapping("/links/{name}")
+    public ResponseEntity<ChaosConfig> getLinkConfig(@PathVariable String name) {
+        ChaosConfig config = chaosService.getChaosConfig(name);
+        return config == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(config);
+    }
+
+    @GetMapping("/links/{name}/metrics")
+    public ResponseEntity<ChaosMetrics> getLinkMetrics(@PathVariable String name) {
+        ChaosMetrics metrics = chaosService.getMetrics(name);
+        return metrics == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(metrics);
+    }
+
+    @PostMapping("/links/{name}")
+    public ResponseEntity<ChaosConfig> updateLinkConfig(@PathVariable String name, @RequestBody ChaosConfig config) {
+        if (!chaosService.hasLink(name)) {
+            return ResponseEntity.notFound().build();
+        }
+        log.info("Received chaos config update for link {}: {}", name, config);
+        try {
+            return ResponseEntity.ok(chaosConfigSync.publish(name, config));
+        } catch (Exception e) {
+            log.error("Failed to publish chaos config: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+    }
+
+    @DeleteMapping("/links/{name}")
+    public ResponseEntity<Void> resetLinkConfig(@PathVariable String name) {
+        if (!chaosService.hasLink(name)) {
+            return ResponseEntity.notFound().build();
+        }
+        log.info("Resetting chaos config of link {} to defaults", name);
+        try {
+            chaosConfigSync.publish(name, new ChaosConfig());
+            return ResponseEntity.noContent().build();
+        } catch (Exception e) {
+            log.error("Failed to publish chaos config reset: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
     }
 }
@@ -20,6 +20,8 @@ public class ChaosConfig {
     private DropPolicy dropPolicy = DropPolicy.DROP_OLDEST;
     private double corruptCoordinatesPercent = 0.0;
     private double maxCorruptionMeters = 0.0;
+    /** Version of this config across replicas; assigned by the scrambler, 0 until one is applied. */
+    private long epoch = 0;
     
     public enum DropPolicy {
         DROP_OLDEST,
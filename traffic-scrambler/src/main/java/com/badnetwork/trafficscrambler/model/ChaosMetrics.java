@@ -13,7 +13,21 @@ public class ChaosMetrics {
     private long reordered;
     private long queued;
     private long bytesPerSec;
+    /** Broker acknowledgement latency of sends to the chaos topic. */
     private long avgLatencyMs;
     private long p95LatencyMs;
     private long corrupted;
+    /** Time between receiving a message and handing it to the producer (latency we inject). */
+    private long avgInjectedLatencyMs;
+    private long p95InjectedLatencyMs;
+    private long inFlight;
+    private long acked;
+    private long sendFailures;
+    private long queuedBytes;
+    /** Held backlog above the high-water mark and not yet back below the low-water mark. */
+    private boolean saturated;
+    /** Share of the configured link (bandwidth, queue size) this replica emulates. */
+    private double linkShare;
+    /** Whether the consumer has actually paused a source partition of the link's topic. */
+    private boolean consumerPaused;
 }
@@ -0,0 +1,39 @@
+package com.badnetwork.trafficscrambler.readiness;
+
+import com.badnetwork.readiness.KafkaReadiness;
+import com.badnetwork.trafficscrambler.config.ScramblerProperties;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.core.KafkaAdmin;
+
+/**
+ * The scrambler is ready once it is actually consuming: the broker answers and every running listener, the
+ * chaos config one included, has been assigned partitions. Reported as the kafkaReadiness health
+ * contributor of the readiness group, and through scrambler.readiness.file when set.
+ */
+@Configuration
+@ConditionalOnProperty(name = "scrambler.readiness.enabled", havingValue = "true", matchIfMissing = true)
+public class KafkaReadinessConfig {
+
+    @Bean
+    public KafkaReadiness kafkaReadiness(ScramblerProperties properties, KafkaAdmin kafkaAdmin,
+                                         KafkaListenerEndpointRegistry listenerRegistry) {
+        ScramblerProperties.Readiness readiness = properties.getReadiness();
+        return new KafkaReadiness(kafkaAdmin, readiness.getCheckIntervalMs(), readiness.getFile(),
+                "every running listener has partitions assigned", KafkaReadiness.listenersAssigned(listenerRegistry));
+    }
+
+    /**
+     * Contributed as kafkaReadiness; the HealthIndicator suffix is dropped from the name.
+     */
+    @Bean
+    public HealthIndicator kafkaReadinessHealthIndicator(KafkaReadiness kafkaReadiness) {
+        return () -> (kafkaReadiness.isReady() ? Health.up() : Health.outOfService())
+                .withDetail("reason", kafkaReadiness.getReason())
+                .build();
+    }
+}
@@ -0,0 +1,87 @@
+package com.badnetwork.trafficscrambler.service;
+
+import com.badnetwork.trafficscrambler.config.ScramblerProperties;
+import com.badnetwork.trafficscrambler.model.ChaosConfig;
+import com.badnetwork.trafficscrambler.transport.TrafficTransport;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.annotation.PartitionOffset;
+import org.springframework.kafka.annotation.TopicPartition;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.messaging.handler.annotation.Header;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Propagates chaos config across scrambler replicas through a log-compacted config topic.
+ * Updates are published rather than applied locally; every replica (including the one that
+ * received the update) replays the topic from the start and applies records in offset order.
+ * Records are keyed by link name, so compaction keeps the latest config of every link. The epoch
+ * is the record offset + 1, so epoch 0 means the link's initial config was never replaced.
+ */
+@Service
+public class ChaosConfigSync {
+
+    private static final Logger log = LoggerFactory.getLogger(ChaosConfigSync.class);
+    private static final long PUBLISH_TIMEOUT_SECONDS = 10;
+
+    private final ScramblerProperties properties;
+    private final TrafficTransport transport;
+    private final ObjectMapper objectMapper;
+    private final ChaosService chaosService;
+
+    public ChaosConfigSync(ScramblerProperties properties,
+                           TrafficTransport transport,
+                           ObjectMapper objectMapper,
+                           ChaosService chaosService) {
+        this.properties = properties;
+        this.transport = transport;
+        this.objectMapper = objectMapper;
+        this.chaosService = chaosService;
+    }
+
+    /**
+     * Publishes the config and waits for the broker ack.
+     *
+     * @return the config stamped with the epoch it will be applied at on every replica
+     */
+    public ChaosConfig publish(String linkName, ChaosConfig config) throws Exception {
+        String json = objectMapper.writeValueAsString(config);
+        long offset = transport.send(properties.getKafka().getConfigTopic(), linkName, json)
+                .get(PUBLISH_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        config.setEpoch(offset + 1);
+        log.info("Published chaos config for link {} at epoch {}", linkName, config.getEpoch());
+        return config;
+    }
+
+    @KafkaListener(
+            // Partitions are assigned and read from offset 0 and no offset is committed, so one stable
+            // group serves every replica without leaving a group behind per restart
+            groupId = "${scrambler.kafka.consumer-group-id}-config",
+            containerFactory = "replayListenerContainerFactory",
+            topicPartitions = @TopicPartition(
+                    topic = "${scrambler.kafka.config-topic}",
+                    partitionOffsets = @PartitionOffset(partition = "0", initialOffset = "0")),
+            autoStartup = "${spring.kafka.listener.auto-startup:true}")
+    public void apply(String message,
+                      @Header(KafkaHeaders.RECEIVED_KEY) String linkName,
+                      @Header(KafkaHeaders.OFFSET) long offset) {
+        // Links not defined on this replica are ignored
+        ChaosConfig current = chaosService.getChaosConfig(linkName);
+        long epoch = offset + 1;
+        if (current == null || epoch <= current.getEpoch()) {
+            return;
+        }
+        try {
+            ChaosConfig config = objectMapper.readValue(message, ChaosConfig.class);
+            config.setEpoch(epoch);
+            chaosService.updateChaosConfig(linkName, config);
+        } catch (JsonProcessingException e) {
+            log.warn("Ignoring unreadable chaos config at offset {}: {}", offset, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,406 @@
+package com.badnetwork.trafficscrambler.service;
+
+import com.badnetwork.trafficscrambler.config.ScramblerProperties;
+import com.badnetwork.trafficscrambler.model.ChaosConfig;
+import com.badnetwork.trafficscrambler.model.ChaosMetrics;
+import com.badnetwork.trafficscrambler.model.DeltaTrafficEvent;
+import com.badnetwork.trafficscrambler.transport.TrafficTransport;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.Data;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * One emulated network link: its own chaos config, delay/reorder queues, bandwidth shaper and
+ * metrics. Links are driven by {@link ChaosService}, which owns the shared scheduler, producer and
+ * in-flight cap, so a link costs no threads of its own.
+ */
+class ChaosLink {
+
+    private static final Logger log = LoggerFactory.getLogger(ChaosLink.class);
+
+    private final String name;
+    private final String sourceTopic;
+    private final String chaosTopic;
+    private final String keyPrefix;
+    private final TrafficTransport transport;
+    private final ObjectMapper objectMapper;
+    private final Semaphore inFlightPermits;
+    private final Random random = new Random();
+
+    private volatile ChaosConfig chaosConfig;
+
+    // Fraction of the source topic's partitions this replica owns; bandwidth and queue limits
+    // are scaled by it so N replicas sharing the consumer group together emulate one link
+    private volatile double linkShare = 1.0;
+
+    // A deque so a message released without an in-flight permit can go back to the head
+    private final ConcurrentLinkedDeque<QueuedMessage> messageQueue = new ConcurrentLinkedDeque<>();
+    private final ConcurrentLinkedQueue<QueuedMessage> reorderBuffer = new ConcurrentLinkedQueue<>();
+    // Held in messageQueue + reorderBuffer; tracked separately since ConcurrentLinkedQueue.size() is O(n)
+    private final AtomicLong queuedMessages = new AtomicLong(0);
+    private final AtomicLong queuedBytes = new AtomicLong(0);
+    private volatile boolean saturated = false;
+
+    private final AtomicLong droppedCount = new AtomicLong(0);
+    private final AtomicLong reorderedCount = new AtomicLong(0);
+    private final AtomicLong corruptedCount = new AtomicLong(0);
+    private final AtomicLong ackedCount = new AtomicLong(0);
+    private final AtomicLong sendFailureCount = new AtomicLong(0);
+    private final AtomicLong inFlightCount = new AtomicLong(0);
+    private final ConcurrentLinkedQueue<Long> ackLatencies = new ConcurrentLinkedQueue<>();
+    private final ConcurrentLinkedQueue<Long> injectedLatencies = new ConcurrentLinkedQueue<>();
+    private final AtomicLong bytesThisSecond = new AtomicLong(0);
+
+    private volatile long lastBurstTime = System.currentTimeMillis();
+    private volatile boolean inBurst = false;
+
+    ChaosLink(String name,
+              ScramblerProperties.Link link,
+              TrafficTransport transport,
+              ObjectMapper objectMapper,
+              Semaphore inFlightPermits) {
+        this.name = name;
+        this.sourceTopic = link.getSourceTopic();
+        this.chaosTopic = link.getChaosTopic();
+        this.keyPrefix = link.getKeyPrefix();
+        this.chaosConfig = link.getChaos() != null ? link.getChaos() : new ChaosConfig();
+        this.transport = transport;
+        this.objectMapper = objectMapper;
+        this.inFlightPermits = inFlightPermits;
+    }
+
+    String getName() {
+        return name;
+    }
+
+    String getSourceTopic() {
+        return sourceTopic;
+    }
+
+    /**
+     * @return whether this link takes records with the given key; links without a prefix take all keys
+     */
+    boolean matches(String key) {
+        return keyPrefix == null || keyPrefix.isEmpty() || (key != null && key.startsWith(keyPrefix));
+    }
+
+    int keyPrefixLength() {
+        return keyPrefix == null ? 0 : keyPrefix.length();
+    }
+
+    void process(DeltaTrafficEvent event, String originalMessage) {
+        long receivedTime = System.currentTimeMillis();
+
+        if (shouldDrop()) {
+            droppedCount.incrementAndGet();
+            log.debug("[{}] Dropped message for entity: {}", name, event.getId());
+            return;
+        }
+
+        if (shouldCorrupt()) {
+            corruptCoordinates(event);
+            corruptedCount.incrementAndGet();
+            try {
+                originalMessage = objectMapper.writeValueAsString(event);
+            } catch (JsonProcessingException e) {
+                log.warn("Failed to serialize corrupted event", e);
+            }
+        }
+
+        int delayMs = calculateDelay();
+
+        if (delayMs > 0 || shouldReorder()) {
+            QueuedMessage qm = new QueuedMessage(
+                event.getId(),
+                originalMessage,
+                receivedTime + delayMs,
+                originalMessage.length(),
+                receivedTime
+            );
+
+            if (shouldReorder()) {
+                enqueue(reorderBuffer, qm);
+                reorderedCount.incrementAndGet();
+            } else {
+                enqueue(messageQueue, qm);
+            }
+        } else if (!messageQueue.isEmpty()
+                || !sendMessage(event.getId(), originalMessage, originalMessage.length(), receivedTime)) {
+            // Behind anything already held, so a free permit never lets this message overtake them
+            enqueue(messageQueue, new QueuedMessage(
+                event.getId(), originalMessage, receivedTime, originalMessage.length(), receivedTime));
+        }
+    }
+
+    private boolean shouldDrop() {
+        if (chaosConfig.getBurstLossSeconds() > 0 && chaosConfig.getBurstLossEverySeconds() > 0) {
+            long now = System.currentTimeMillis();
+            long elapsed = now - lastBurstTime;
+            long burstInterval = chaosConfig.getBurstLossEverySeconds() * 1000L;
+            long burstDuration = chaosConfig.getBurstLossSeconds() * 1000L;
+
+            if (elapsed >= burstInterval) {
+                lastBurstTime = now;
+                inBurst = true;
+            }
+
+            if (inBurst && elapsed < burstDuration) {
+                return true;
+            } else if (elapsed >= burstDuration) {
+                inBurst = false;
+            }
+        }
+
+        return random.nextDouble() < chaosConfig.getLossPercent();
+    }
+
+    private boolean shouldReorder() {
+        return random.nextDouble() < chaosConfig.getOutOfOrderPercent();
+    }
+
+    private boolean shouldCorrupt() {
+        return random.nextDouble() < chaosConfig.getCorruptCoordinatesPercent();
+    }
+
+    private void corruptCoordinates(DeltaTrafficEvent event) {
+        double maxMeters = chaosConfig.getMaxCorruptionMeters();
+        if (maxMeters > 0) {
+            double deltaLat = (random.nextDouble() - 0.5) * 2 * (maxMeters / 111000.0);
+            double deltaLon = (random.nextDouble() - 0.5) * 2 * (maxMeters / 111000.0);
+            event.setDeltaLat(event.getDeltaLat() + deltaLat);
+            event.setDeltaLong(event.getDeltaLong() + deltaLon);
+        }
+    }
+
+    private int calculateDelay() {
+        int delay = chaosConfig.getFixedLatencyMs();
+        if (chaosConfig.getJitterMs() > 0) {
+            delay += random.nextInt(chaosConfig.getJitterMs());
+        }
+        return delay;
+    }
+
+    void processDelayedMessages(long now) {
+        List<QueuedMessage> reordered = new ArrayList<>();
+        QueuedMessage qm;
+        while ((qm = reorderBuffer.poll()) != null) {
+            reordered.add(qm);
+        }
+        Collections.shuffle(reordered);
+        for (QueuedMessage msg : reordered) {
+            messageQueue.offer(msg);
+        }
+
+        // Stop releasing once the producer has maxInFlight unacknowledged sends
+        while (inFlightPermits.availablePermits() > 0 && (qm = messageQueue.peek()) != null) {
+            if (qm.getSendTime() <= now) {
+                messageQueue.poll();
+                released(qm);
+
+                boolean handled = exceedsQueueSize() ? applyDropPolicy(qm) : sendMessage(qm);
+                if (!handled) {
+                    // No permit or bandwidth left: keep the message's place and retry next tick
+                    queuedMessages.incrementAndGet();
+                    queuedBytes.addAndGet(qm.getSize());
+                    messageQueue.offerFirst(qm);
+                    break;
+                }
+            } else {
+                break;
+            }
+        }
+    }
+
+    private boolean exceedsQueueSize() {
+        return queuedMessages.get() > Math.max(1, (long) Math.ceil(chaosConfig.getMaxQueueSize() * linkShare));
+    }
+
+    private void enqueue(Queue<QueuedMessage> queue, QueuedMessage qm) {
+        queuedMessages.incrementAndGet();
+        queuedBytes.addAndGet(qm.getSize());
+        queue.offer(qm);
+    }
+
+    private void released(QueuedMessage qm) {
+        queuedMessages.decrementAndGet();
+        queuedBytes.addAndGet(-qm.getSize());
+    }
+
+    /**
+     * Marks the link saturated once its held backlog passes the high-water mark and clears it
+     * below the low-water mark.
+     *
+     * @return whether the link is saturated after the update
+     */
+    boolean updateSaturation(ScramblerProperties.Backpressure limits) {
+        long messages = queuedMessages.get();
+        long bytes = queuedBytes.get();
+
+        if (!saturated
+                && (messages >= limits.getHighWaterMessages() || bytes >= limits.getHighWaterBytes())) {
+            saturated = true;
+            log.info("[{}] Queue saturated (queued messages={}, bytes={})", name, messages, bytes);
+        } else if (saturated
+                && messages <= limits.getLowWaterMessages() && bytes <= limits.getLowWaterBytes()) {
+            saturated = false;
+            log.info("[{}] Queue drained (queued messages={}, bytes={})", name, messages, bytes);
+        }
+        return saturated;
+    }
+
+    /**
+     * @return false if the message was to be sent but no in-flight permit was free
+     */
+    private boolean applyDropPolicy(QueuedMessage message) {
+        if (chaosConfig.getDropPolicy() == ChaosConfig.DropPolicy.DROP_OLDEST) {
+            droppedCount.incrementAndGet();
+            log.debug("[{}] Dropped oldest message (queue full)", name);
+        } else if (chaosConfig.getDropPolicy() == ChaosConfig.DropPolicy.DROP_NEWEST) {
+            return sendMessage(message);
+        } else if (chaosConfig.getDropPolicy() == ChaosConfig.DropPolicy.COALESCE_BY_ID) {
+            Map<String, QueuedMessage> coalesced = new LinkedHashMap<>();
+            QueuedMessage qm;
+            while ((qm = messageQueue.poll()) != null) {
+                QueuedMessage replaced = coalesced.put(qm.getEntityId(), qm);
+                if (replaced != null) {
+                    released(replaced);
+                }
+            }
+            messageQueue.addAll(coalesced.values());
+        }
+        return true;
+    }
+
+    private boolean sendMessage(QueuedMessage qm) {
+        return sendMessage(qm.getEntityId(), qm.getMessage(), qm.getSize(), qm.getReceivedTime());
+    }
+
+    /**
+     * @return false, with nothing done, if no in-flight permit was free or the link's bandwidth for this
+     * second is used up; the caller then holds the message in order
+     */
+    private boolean sendMessage(String entityId, String message, int size, long receivedTime) {
+        if (!inFlightPermits.tryAcquire()) {
+            return false;
+        }
+
+        if (chaosConfig.getBandwidthBytesPerSec() > 0) {
+            long currentBytes = bytesThisSecond.addAndGet(size);
+            if (currentBytes > chaosConfig.getBandwidthBytesPerSec() * linkShare) {
+                bytesThisSecond.addAndGet(-size);
+                inFlightPermits.release();
+                return false;
+            }
+        }
+
+        long sendStart = System.currentTimeMillis();
+        recordSample(injectedLatencies, sendStart - receivedTime);
+        inFlightCount.incrementAndGet();
+
+        try {
+            transport.send(chaosTopic, entityId, message)
+                .whenComplete((result, ex) -> {
+                    inFlightPermits.release();
+                    inFlightCount.decrementAndGet();
+                    if (ex != null) {
+                        sendFailureCount.incrementAndGet();
+                        log.warn("[{}] Failed to send chaos message for entity {}: {}", name, entityId, ex.getMessage());
+                    } else {
+                        ackedCount.incrementAndGet();
+                        recordSample(ackLatencies, System.currentTimeMillis() - sendStart);
+                    }
+                });
+        } catch (Exception e) {
+            // send() can throw synchronously (e.g. buffer exhausted, metadata timeout)
+            inFlightPermits.release();
+            inFlightCount.decrementAndGet();
+            sendFailureCount.incrementAndGet();
+            log.warn("[{}] Failed to send chaos message for entity {}: {}", name, entityId, e.getMessage());
+            return true;
+        }
+
+        log.debug("[{}] Sent chaos message for entity: {}", name, entityId);
+        return true;
+    }
+
+    private static void recordSample(ConcurrentLinkedQueue<Long> samples, long value) {
+        samples.offer(value);
+        if (samples.size() > 1000) {
+            samples.poll();
+        }
+    }
+
+    void resetBandwidth() {
+        bytesThisSecond.set(0);
+    }
+
+    void setLinkShare(double linkShare) {
+        this.linkShare = linkShare;
+    }
+
+    void updateChaosConfig(ChaosConfig config) {
+        this.chaosConfig = config;
+        log.info("[{}] Chaos configuration updated: {}", name, config);
+    }
+
+    ChaosConfig getChaosConfig() {
+        return chaosConfig;
+    }
+
+    ChaosMetrics getMetrics() {
+        long[] ackStats = latencyStats(ackLatencies);
+        long[] injectedStats = latencyStats(injectedLatencies);
+
+        return new ChaosMetrics(
+            droppedCount.get(),
+            reorderedCount.get(),
+            queuedMessages.get(),
+            bytesThisSecond.get(),
+            ackStats[0],
+            ackStats[1],
+            corruptedCount.get(),
+            injectedStats[0],
+            injectedStats[1],
+            inFlightCount.get(),
+            ackedCount.get(),
+            sendFailureCount.get(),
+            queuedBytes.get(),
+            saturated,
+            linkShare,
+            // Filled in by ChaosService, which owns the consumer
+            false
+        );
+    }
+
+    /**
+     * @return [0] = average, [1] = p95 of the sampled latencies
+     */
+    private static long[] latencyStats(ConcurrentLinkedQueue<Long> samples) {
+        List<Long> latencyList = new ArrayList<>(samples);
+        if (latencyList.isEmpty()) {
+            return new long[]{ 0, 0 };
+        }
+        long avgLatency = (long) latencyList.stream().mapToLong(Long::longValue).average().orElse(0);
+
+        Collections.sort(latencyList);
+        long p95Latency = latencyList.get((int) (latencyList.size() * 0.95));
+        return new long[]{ avgLatency, p95Latency };
+    }
+
+    @Data
+    private static class QueuedMessage {
+        private final String entityId;
+        private final String message;
+        private final long sendTime;
+        private final int size;
+        private final long receivedTime;
+    }
+}
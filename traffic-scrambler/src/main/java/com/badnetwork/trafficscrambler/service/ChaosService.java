@@ -4,64 +4,120 @@ import com.badnetwork.trafficscrambler.config.ScramblerProperties;
 import com.badnetwork.trafficscrambler.model.ChaosConfig;
 import com.badnetwork.trafficscrambler.model.ChaosMetrics;
 import com.badnetwork.trafficscrambler.model.DeltaTrafficEvent;
+import com.badnetwork.trafficscrambler.transport.TrafficTransport;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import lombok.Data;
+import jakarta.annotation.PreDestroy;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
 import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.MessageListenerContainer;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
 import java.util.concurrent.*;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
 
+/**
+ * Consumes every link's source topic with one listener and routes each record to its
+ * {@link ChaosLink} by topic and key prefix. All links share one scheduler, one producer and one
+ * in-flight cap, so hundreds of links cost no extra threads.
+ */
 @Service
 public class ChaosService {
 
     private static final Logger log = LoggerFactory.getLogger(ChaosService.class);
+    private static final String LISTENER_ID = "chaos-consumer";
+    public static final String DEFAULT_LINK = "default";
 
     private final ScramblerProperties properties;
     private final KafkaTemplate<String, String> kafkaTemplate;
     private final ObjectMapper objectMapper;
-    private final Random random = new Random();
+    private final KafkaListenerEndpointRegistry listenerRegistry;
     private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(2);
-    
-    private ChaosConfig chaosConfig = new ChaosConfig();
-    
-    private final ConcurrentLinkedQueue<QueuedMessage> messageQueue = new ConcurrentLinkedQueue<>();
-    private final ConcurrentLinkedQueue<QueuedMessage> reorderBuffer = new ConcurrentLinkedQueue<>();
-    
-    private final AtomicLong droppedCount = new AtomicLong(0);
-    private final AtomicLong reorderedCount = new AtomicLong(0);
-    private final AtomicLong corruptedCount = new AtomicLong(0);
-    private final ConcurrentLinkedQueue<Long> latencies = new ConcurrentLinkedQueue<>();
-    private final AtomicLong bytesThisSecond = new AtomicLong(0);
-    
-    private volatile long lastBurstTime = System.currentTimeMillis();
-    private volatile boolean inBurst = false;
+    private final Semaphore inFlightPermits;
+
+    private final Map<String, ChaosLink> links = new LinkedHashMap<>();
+    // Per source topic, links ordered by longest key prefix first so the most specific match wins
+    private final Map<String, List<ChaosLink>> linksByTopic = new HashMap<>();
+    private final ChaosLink[] tickOrder;
+    private int tickStart = 0;
+
+    private volatile Set<TopicPartition> lastAssignment = Set.of();
 
     public ChaosService(ScramblerProperties properties,
                         KafkaTemplate<String, String> kafkaTemplate,
-                        ObjectMapper objectMapper) {
+                        TrafficTransport transport,
+                        ObjectMapper objectMapper,
+                        KafkaListenerEndpointRegistry listenerRegistry) {
         this.properties = properties;
         this.kafkaTemplate = kafkaTemplate;
         this.objectMapper = objectMapper;
-        
+        this.listenerRegistry = listenerRegistry;
+        this.inFlightPermits = new Semaphore(properties.getKafka().getMaxInFlight());
+
+        resolveLinks().forEach((name, link) ->
+            links.put(name, new ChaosLink(name, link, transport, objectMapper, inFlightPermits)));
+        for (ChaosLink link : links.values()) {
+            linksByTopic.computeIfAbsent(link.getSourceTopic(), t -> new ArrayList<>()).add(link);
+        }
+        linksByTopic.values().forEach(list ->
+            list.sort(Comparator.comparingInt(ChaosLink::keyPrefixLength).reversed()));
+        this.tickOrder = links.values().toArray(new ChaosLink[0]);
+
         scheduler.scheduleAtFixedRate(this::processBandwidthReset, 1, 1, TimeUnit.SECONDS);
         scheduler.scheduleAtFixedRate(this::processDelayedMessages, 10, 10, TimeUnit.MILLISECONDS);
-        
-        log.info("ChaosService initialized - will consume from: {}", properties.getKafka().getSourceTopic());
+
+        log.info("ChaosService initialized - {} link(s) consuming from: {}", links.size(), linksByTopic.keySet());
+    }
+
+    @PreDestroy
+    public void stop() {
+        scheduler.shutdownNow();
     }
 
-    @KafkaListener(topics = "${scrambler.kafka.source-topic}", groupId = "${scrambler.kafka.consumer-group-id}")
-    public void consume(String message) {
+    /**
+     * Falls back to a single {@value #DEFAULT_LINK} link built from scrambler.kafka when no links are configured.
+     */
+    private Map<String, ScramblerProperties.Link> resolveLinks() {
+        if (!properties.getLinks().isEmpty()) {
+            return properties.getLinks();
+        }
+        ScramblerProperties.Link link = new ScramblerProperties.Link();
+        link.setSourceTopic(properties.getKafka().getSourceTopic());
+        link.setChaosTopic(properties.getKafka().getChaosTopic());
+        return Map.of(DEFAULT_LINK, link);
+    }
+
+    public String[] getSourceTopics() {
+        return linksByTopic.keySet().toArray(new String[0]);
+    }
+
+    @KafkaListener(id = LISTENER_ID, topics = "#{__listener.sourceTopics}", groupId = "${scrambler.kafka.consumer-group-id}",
+            autoStartup = "${spring.kafka.listener.auto-startup:true}")
+    public void consume(ConsumerRecord<String, String> record) {
+        process(record.topic(), record.key(), record.value());
+    }
+
+    /**
+     * Routes one source record to its link; called per record by whichever transport delivers the source topics.
+     */
+    public void process(String topic, String key, String message) {
         log.debug("Received message: {}", message);
-        
+
+        ChaosLink link = route(topic, key);
+        if (link == null) {
+            log.debug("No link for key {} on topic {}", key, topic);
+            return;
+        }
+
         try {
             DeltaTrafficEvent event = objectMapper.readValue(message, DeltaTrafficEvent.class);
-            processChaos(event, message);
+            link.process(event, message);
         } catch (JsonProcessingException e) {
             log.warn("Failed to deserialize delta traffic event: {}", e.getMessage());
         } catch (Exception e) {
@@ -69,202 +125,152 @@ public class ChaosService {
         }
     }
 
-    private void processChaos(DeltaTrafficEvent event, String originalMessage) {
-        if (shouldDrop()) {
-            droppedCount.incrementAndGet();
-            log.debug("Dropped message for entity: {}", event.getId());
-            return;
-        }
-        
-        if (shouldCorrupt()) {
-            corruptCoordinates(event);
-            corruptedCount.incrementAndGet();
-            try {
-                originalMessage = objectMapper.writeValueAsString(event);
-            } catch (JsonProcessingException e) {
-                log.warn("Failed to serialize corrupted event", e);
-            }
-        }
-        
-        int delayMs = calculateDelay();
-        
-        if (delayMs > 0 || shouldReorder()) {
-            QueuedMessage qm = new QueuedMessage(
-                event.getId(),
-                originalMessage,
-                System.currentTimeMillis() + delayMs,
-                originalMessage.length()
-            );
-            
-            if (shouldReorder()) {
-                reorderBuffer.offer(qm);
-                reorderedCount.incrementAndGet();
-            } else {
-                messageQueue.offer(qm);
+    private ChaosLink route(String topic, String key) {
+        List<ChaosLink> candidates = linksByTopic.get(topic);
+        if (candidates != null) {
+            for (ChaosLink link : candidates) {
+                if (link.matches(key)) {
+                    return link;
+                }
             }
-        } else {
-            sendMessage(event.getId(), originalMessage, originalMessage.length());
         }
+        return null;
     }
 
-    private boolean shouldDrop() {
-        if (chaosConfig.getBurstLossSeconds() > 0 && chaosConfig.getBurstLossEverySeconds() > 0) {
-            long now = System.currentTimeMillis();
-            long elapsed = now - lastBurstTime;
-            long burstInterval = chaosConfig.getBurstLossEverySeconds() * 1000L;
-            long burstDuration = chaosConfig.getBurstLossSeconds() * 1000L;
-            
-            if (elapsed >= burstInterval) {
-                lastBurstTime = now;
-                inBurst = true;
-            }
-            
-            if (inBurst && elapsed < burstDuration) {
-                return true;
-            } else if (elapsed >= burstDuration) {
-                inBurst = false;
-            }
+    private void processDelayedMessages() {
+        long now = System.currentTimeMillis();
+
+        // Rotate the starting link so a shared in-flight cap doesn't always favour the first links
+        int n = tickOrder.length;
+        for (int i = 0; i < n; i++) {
+            tickOrder[(tickStart + i) % n].processDelayedMessages(now);
         }
-        
-        return random.nextDouble() < chaosConfig.getLossPercent();
-    }
+        tickStart = (tickStart + 1) % n;
 
-    private boolean shouldReorder() {
-        return random.nextDouble() < chaosConfig.getOutOfOrderPercent();
+        applyConsumerBackpressure();
     }
 
-    private boolean shouldCorrupt() {
-        return random.nextDouble() < chaosConfig.getCorruptCoordinatesPercent();
-    }
+    /**
+     * Pauses the source partitions of any topic with a saturated link and resumes them once all of
+     * its links drain, so that backlog stays in Kafka rather than on the heap.
+     */
+    private void applyConsumerBackpressure() {
+        MessageListenerContainer container = listenerRegistry.getListenerContainer(LISTENER_ID);
+        if (container == null) {
+            return;
+        }
+        Collection<TopicPartition> assigned = container.getAssignedPartitions();
+        if (assigned == null || assigned.isEmpty()) {
+            return;
+        }
 
-    private void corruptCoordinates(DeltaTrafficEvent event) {
-        double maxMeters = chaosConfig.getMaxCorruptionMeters();
-        if (maxMeters > 0) {
-            double deltaLat = (random.nextDouble() - 0.5) * 2 * (maxMeters / 111000.0);
-            double deltaLon = (random.nextDouble() - 0.5) * 2 * (maxMeters / 111000.0);
-            event.setDeltaLat(event.getDeltaLat() + deltaLat);
-            event.setDeltaLong(event.getDeltaLong() + deltaLon);
+        ScramblerProperties.Backpressure limits = properties.getBackpressure();
+        Set<String> saturatedTopics = new HashSet<>();
+        for (ChaosLink link : tickOrder) {
+            if (link.updateSaturation(limits)) {
+                saturatedTopics.add(link.getSourceTopic());
+            }
         }
-    }
 
-    private int calculateDelay() {
-        int delay = chaosConfig.getFixedLatencyMs();
-        if (chaosConfig.getJitterMs() > 0) {
-            delay += random.nextInt(chaosConfig.getJitterMs());
+        for (TopicPartition partition : assigned) {
+            boolean pauseRequested = container.isPartitionPauseRequested(partition);
+            if (saturatedTopics.contains(partition.topic())) {
+                if (!pauseRequested) {
+                    container.pausePartition(partition);
+                    log.info("Paused source consumption of {}", partition);
+                }
+            } else if (pauseRequested) {
+                container.resumePartition(partition);
+                log.info("Resumed source consumption of {}", partition);
+            }
         }
-        return delay;
     }
 
-    private void processDelayedMessages() {
-        long now = System.currentTimeMillis();
-        
-        List<QueuedMessage> reordered = new ArrayList<>();
-        QueuedMessage qm;
-        while ((qm = reorderBuffer.poll()) != null) {
-            reordered.add(qm);
+    private void processBandwidthReset() {
+        for (ChaosLink link : tickOrder) {
+            link.resetBandwidth();
         }
-        Collections.shuffle(reordered);
-        for (QueuedMessage msg : reordered) {
-            messageQueue.offer(msg);
+        refreshLinkShares();
+    }
+
+    private void refreshLinkShares() {
+        MessageListenerContainer container = listenerRegistry.getListenerContainer(LISTENER_ID);
+        Collection<TopicPartition> assigned = container == null ? null : container.getAssignedPartitions();
+        if (assigned == null || assigned.isEmpty() || lastAssignment.equals(new HashSet<>(assigned))) {
+            return;
         }
-        
-        while ((qm = messageQueue.peek()) != null) {
-            if (qm.getSendTime() <= now) {
-                messageQueue.poll();
-                
-                if (exceedsQueueSize()) {
-                    applyDropPolicy(qm);
-                } else {
-                    sendMessage(qm.getEntityId(), qm.getMessage(), qm.getSize());
-                }
-            } else {
-                break;
-            }
+
+        Map<String, Long> ownedByTopic = assigned.stream()
+            .collect(Collectors.groupingBy(TopicPartition::topic, Collectors.counting()));
+        try {
+            ownedByTopic.forEach((topic, owned) -> {
+                int total = kafkaTemplate.partitionsFor(topic).size();
+                double share = Math.min(1.0, (double) owned / total);
+                linksByTopic.getOrDefault(topic, List.of()).forEach(link -> link.setLinkShare(share));
+                log.info("Owning {}/{} partitions of {}, link share {}", owned, total, topic, share);
+            });
+            lastAssignment = new HashSet<>(assigned);
+        } catch (Exception e) {
+            log.warn("Failed to look up source partition count: {}", e.getMessage());
         }
     }
 
-    private boolean exceedsQueueSize() {
-        return messageQueue.size() > chaosConfig.getMaxQueueSize();
+    public Set<String> getLinkNames() {
+        return Collections.unmodifiableSet(links.keySet());
     }
 
-    private void applyDropPolicy(QueuedMessage message) {
-        if (chaosConfig.getDropPolicy() == ChaosConfig.DropPolicy.DROP_OLDEST) {
-            droppedCount.incrementAndGet();
-            log.debug("Dropped oldest message (queue full)");
-        } else if (chaosConfig.getDropPolicy() == ChaosConfig.DropPolicy.DROP_NEWEST) {
-            sendMessage(message.getEntityId(), message.getMessage(), message.getSize());
-        } else if (chaosConfig.getDropPolicy() == ChaosConfig.DropPolicy.COALESCE_BY_ID) {
-            Map<String, QueuedMessage> coalesced = new HashMap<>();
-            messageQueue.forEach(qm -> coalesced.put(qm.getEntityId(), qm));
-            messageQueue.clear();
-            messageQueue.addAll(coalesced.values());
-        }
+    /**
+     * @return the link the un-named /chaos endpoints act on: {@value #DEFAULT_LINK} if present, else the first
+     */
+    public String getDefaultLinkName() {
+        return links.containsKey(DEFAULT_LINK) ? DEFAULT_LINK : links.keySet().iterator().next();
     }
 
-    private void sendMessage(String entityId, String message, int size) {
-        if (chaosConfig.getBandwidthBytesPerSec() > 0) {
-            long currentBytes = bytesThisSecond.addAndGet(size);
-            if (currentBytes > chaosConfig.getBandwidthBytesPerSec()) {
-                messageQueue.offer(new QueuedMessage(
-                    entityId, 
-                    message, 
-                    System.currentTimeMillis() + 100,
-                    size
-                ));
-                return;
-            }
-        }
-        
-        long startTime = System.currentTimeMillis();
-        kafkaTemplate.send(properties.getKafka().getChaosTopic(), entityId, message);
-        long latency = System.currentTimeMillis() - startTime;
-        latencies.offer(latency);
-        
-        if (latencies.size() > 1000) {
-            latencies.poll();
-        }
-        
-        log.debug("Sent chaos message for entity: {}", entityId);
+    public boolean hasLink(String linkName) {
+        return links.containsKey(linkName);
     }
 
-    private void processBandwidthReset() {
-        bytesThisSecond.set(0);
+    public void updateChaosConfig(String linkName, ChaosConfig config) {
+        ChaosLink link = links.get(linkName);
+        if (link != null) {
+            link.updateChaosConfig(config);
+        }
     }
 
-    public void updateChaosConfig(ChaosConfig config) {
-        this.chaosConfig = config;
-        log.info("Chaos configuration updated: {}", config);
+    public ChaosConfig getChaosConfig(String linkName) {
+        ChaosLink link = links.get(linkName);
+        return link == null ? null : link.getChaosConfig();
     }
 
     public ChaosConfig getChaosConfig() {
-        return chaosConfig;
+        return getChaosConfig(getDefaultLinkName());
     }
 
-    public ChaosMetrics getMetrics() {
-        List<Long> latencyList = new ArrayList<>(latencies);
-        long avgLatency = latencyList.isEmpty() ? 0 : 
-            (long) latencyList.stream().mapToLong(Long::longValue).average().orElse(0);
-        
-        Collections.sort(latencyList);
-        long p95Latency = latencyList.isEmpty() ? 0 : 
-            latencyList.get((int) (latencyList.size() * 0.95));
-        
-        return new ChaosMetrics(
-            droppedCount.get(),
-            reorderedCount.get(),
-            messageQueue.size(),
-            bytesThisSecond.get(),
-            avgLatency,
-            p95Latency,
-            corruptedCount.get()
-        );
+    public ChaosMetrics getMetrics(String linkName) {
+        ChaosLink link = links.get(linkName);
+        if (link == null) {
+            return null;
+        }
+        ChaosMetrics metrics = link.getMetrics();
+        metrics.setConsumerPaused(isSourcePaused(link.getSourceTopic()));
+        return metrics;
     }
 
-    @Data
-    private static class QueuedMessage {
-        private final String entityId;
-        private final String message;
-        private final long sendTime;
-        private final int size;
+    /**
+     * @return whether the consumer has actually paused any assigned partition of the topic; a pause is
+     * requested on the next tick after a link saturates but only takes effect on the consumer's next poll
+     */
+    private boolean isSourcePaused(String topic) {
+        MessageListenerContainer container = listenerRegistry.getListenerContainer(LISTENER_ID);
+        Collection<TopicPartition> assigned = container == null ? null : container.getAssignedPartitions();
+        if (assigned == null) {
+            return false;
+        }
+        return assigned.stream()
+            .anyMatch(partition -> partition.topic().equals(topic) && container.isPartitionPaused(partition));
+    }
+
+    public ChaosMetrics getMetrics() {
+        return getMetrics(getDefaultLinkName());
     }
 }
@@ -0,0 +1,15 @@
+package com.badnetwork.trafficscrambler.transport;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Sends chaos output and config updates. Callers rely on the returned future to release in-flight permits
+ * and to learn a config record's position, so it must complete on every transport.
+ */
+public interface TrafficTransport {
+
+    /**
+     * @return completes with the record's position in the topic (its offset on Kafka) once the transport has taken it
+     */
+    CompletableFuture<Long> send(String topic, String key, String value);
+}
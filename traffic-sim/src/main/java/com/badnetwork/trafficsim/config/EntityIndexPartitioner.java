@@ -0,0 +1,52 @@
+package com.badnetwork.trafficsim.config;
+
+import org.apache.kafka.clients.producer.Partitioner;
+import org.apache.kafka.common.Cluster;
+import org.apache.kafka.common.utils.Utils;
+
+import java.util.Map;
+
+/**
+ * Partitions sharded entity ids by their global entity number modulo the partition count, so every
+ * partition gets the same number of entities (give or take one) and an entity keeps its partition across
+ * restarts. Keys without a trailing number are hashed as by Kafka's default partitioner.
+ */
+public class EntityIndexPartitioner implements Partitioner {
+
+    @Override
+    public int partition(String topic, Object key, byte[] keyBytes, Object value, byte[] valueBytes, Cluster cluster) {
+        int partitions = cluster.partitionCountForTopic(topic);
+        long entityNumber = key instanceof String id ? trailingNumber(id) : -1;
+        if (entityNumber >= 0) {
+            return (int) (entityNumber % partitions);
+        }
+        return keyBytes == null ? 0 : Utils.toPositive(Utils.murmur2(keyBytes)) % partitions;
+    }
+
+    /**
+     * @return the digits after the last dash as a number, or -1 if there are none or anything else follows it
+     */
+    public static long trailingNumber(String id) {
+        int start = id.lastIndexOf('-') + 1;
+        if (start == id.length() || id.length() - start > 18) {
+            return -1;
+        }
+        long number = 0;
+        for (int i = start; i < id.length(); i++) {
+            char c = id.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            number = number * 10 + (c - '0');
+        }
+        return number;
+    }
+
+    @Override
+    public void configure(Map<String, ?> configs) {
+    }
+
+    @Override
+    public void close() {
+    }
+}
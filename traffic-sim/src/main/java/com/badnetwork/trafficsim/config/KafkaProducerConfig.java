@@ -19,10 +19,14 @@ import java.util.Map;
 public class KafkaProducerConfig {
 
     @Bean
-    public ProducerFactory<String, String> producerFactory(KafkaProperties kafkaProperties) {
+    public ProducerFactory<String, String> producerFactory(KafkaProperties kafkaProperties,
+                                                           TrafficProperties trafficProperties) {
         Map<String, Object> props = kafkaProperties.buildProducerProperties();
         props.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
         props.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        if (trafficProperties.getShard().isEnabled()) {
+            props.put(ProducerConfig.PARTITIONER_CLASS_CONFIG, EntityIndexPartitioner.class);
+        }
         return new DefaultKafkaProducerFactory<>(props);
     }
 
@@ -12,6 +12,8 @@ public class TrafficProperties {
     private String instanceId = "";
     private Kafka kafka = new Kafka();
     private Path path = new Path();
+    private Readiness readiness = new Readiness();
+    private Shard shard = new Shard();
 
     @Data
     public static final class Kafka {
@@ -25,4 +27,25 @@ public class TrafficProperties {
         private double centerLon = -74.0;
         private double radiusKm = 0.5;
     }
+
+    /**
+     * With sharding, instance n simulates entities n * entity-count up to (n + 1) * entity-count - 1 of one
+     * global numbering, so each added instance adds a range and a restarted one resumes the same ids.
+     */
+    @Data
+    public static final class Shard {
+        private boolean enabled = false;
+        /** This instance's shard; when negative, the trailing number of instance-id (a StatefulSet ordinal). */
+        private int index = -1;
+        /** Entity ids are this, a dash and the global entity number. */
+        private String entityPrefix = "entity";
+    }
+
+    @Data
+    public static final class Readiness {
+        private boolean enabled = true;
+        /** Created while ready and deleted otherwise, for orchestrators to probe; none when empty. */
+        private String file = "";
+        private long checkIntervalMs = 1000;
+    }
 }
@@ -1,16 +1,17 @@
 package com.badnetwork.trafficsim.producer;
 
+import com.badnetwork.trafficsim.config.EntityIndexPartitioner;
 import com.badnetwork.trafficsim.config.TrafficProperties;
 import com.badnetwork.trafficsim.model.TrafficEvent;
 import com.badnetwork.trafficsim.path.PathStrategy;
 import com.badnetwork.trafficsim.path.PathStrategyFactory;
+import com.badnetwork.trafficsim.transport.TrafficTransport;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.stereotype.Component;
 
 import java.net.InetAddress;
@@ -26,20 +27,31 @@ public class TrafficProducer {
 
     private final TrafficProperties properties;
     private final PathStrategy pathStrategy;
-    private final KafkaTemplate<String, String> kafkaTemplate;
+    private final TrafficTransport transport;
     private final ObjectMapper objectMapper;
     private final String effectiveInstanceId;
+    // Ids are entityPrefix-(firstEntity + i) when sharded, else effectiveInstanceId-i
+    private final String entityPrefix;
+    private final long firstEntity;
     private ScheduledExecutorService scheduler;
 
     public TrafficProducer(TrafficProperties properties,
                            PathStrategyFactory pathStrategyFactory,
-                           KafkaTemplate<String, String> kafkaTemplate,
+                           TrafficTransport transport,
                            ObjectMapper objectMapper) {
         this.properties = properties;
         this.pathStrategy = pathStrategyFactory.create();
-        this.kafkaTemplate = kafkaTemplate;
+        this.transport = transport;
         this.objectMapper = objectMapper;
         this.effectiveInstanceId = resolveInstanceId(properties.getInstanceId());
+        TrafficProperties.Shard shard = properties.getShard();
+        if (shard.isEnabled()) {
+            this.entityPrefix = shard.getEntityPrefix();
+            this.firstEntity = resolveShardIndex(shard.getIndex(), effectiveInstanceId) * (long) properties.getEntityCount();
+        } else {
+            this.entityPrefix = effectiveInstanceId;
+            this.firstEntity = 0;
+        }
     }
 
     @PostConstruct
@@ -50,12 +62,17 @@ public class TrafficProducer {
 
         log.info("Starting traffic producer: instance-id={}, entity-count={}, interval={}ms, topic={}",
                 effectiveInstanceId, entityCount, intervalMs, topic);
+        if (properties.getShard().isEnabled()) {
+            log.info("Shard {}: entities {}-{} to {}-{}", firstEntity / Math.max(entityCount, 1),
+                    entityPrefix, firstEntity, entityPrefix, firstEntity + entityCount - 1);
+        }
 
         scheduler = Executors.newScheduledThreadPool(Math.min(entityCount, 10));
 
         for (int i = 0; i < entityCount; i++) {
-            final int entityIndex = i;
-            final String entityId = effectiveInstanceId + "-" + entityIndex;
+            // Path phases follow the global number, so shards do not all trace the same positions
+            final int entityIndex = (int) (firstEntity + i);
+            final String entityId = entityPrefix + "-" + (firstEntity + i);
 
             scheduler.scheduleAtFixedRate(
                     () -> publishPosition(entityId, entityIndex, topic),
@@ -91,7 +108,7 @@ public class TrafficProducer {
             double[] pos = pathStrategy.position(entityIndex, now);
             TrafficEvent event = new TrafficEvent(entityId, pos[0], pos[1], now);
             String json = objectMapper.writeValueAsString(event);
-            kafkaTemplate.send(topic, entityId, json);
+            transport.send(topic, entityId, json);
         } catch (JsonProcessingException e) {
             log.warn("Failed to serialize event for entity {}: {}", entityId, e.getMessage());
         } catch (Exception e) {
@@ -99,6 +116,18 @@ public class TrafficProducer {
         }
     }
 
+    private static int resolveShardIndex(int configured, String instanceId) {
+        if (configured >= 0) {
+            return configured;
+        }
+        long ordinal = EntityIndexPartitioner.trailingNumber(instanceId);
+        if (ordinal < 0 || ordinal > Integer.MAX_VALUE) {
+            throw new IllegalStateException("traffic.shard.index is not set and instance id " + instanceId
+                    + " does not end in a shard number");
+        }
+        return (int) ordinal;
+    }
+
     private static String resolveInstanceId(String configured) {
         if (configured != null && !configured.isBlank()) {
             return configured.trim();
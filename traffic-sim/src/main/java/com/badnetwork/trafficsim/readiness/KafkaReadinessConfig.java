@@ -0,0 +1,28 @@
+package com.badnetwork.trafficsim.readiness;
+
+import com.badnetwork.readiness.KafkaReadiness;
+import com.badnetwork.trafficsim.config.TrafficProperties;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.core.KafkaAdmin;
+import org.springframework.kafka.core.KafkaTemplate;
+
+/**
+ * The simulator is ready once it can actually publish: the broker answers and the topic has partitions.
+ * While ready, traffic.readiness.file exists, so an orchestrator can wait on it instead of sleeping.
+ */
+@Configuration
+@ConditionalOnProperty(name = "traffic.readiness.enabled", havingValue = "true", matchIfMissing = true)
+public class KafkaReadinessConfig {
+
+    @Bean
+    public KafkaReadiness kafkaReadiness(TrafficProperties properties, KafkaAdmin kafkaAdmin,
+                                         KafkaTemplate<String, String> kafkaTemplate) {
+        String topic = properties.getKafka().getTopic();
+        TrafficProperties.Readiness readiness = properties.getReadiness();
+        return new KafkaReadiness(kafkaAdmin, readiness.getCheckIntervalMs(), readiness.getFile(),
+                "publishing to " + topic,
+                () -> kafkaTemplate.partitionsFor(topic).isEmpty() ? "no partitions for " + topic : null);
+    }
+}
@@ -0,0 +1,26 @@
+package com.badnetwork.trafficsim.transport;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The default transport; another is supplied when traffic.transport is set to anything but kafka.
+ */
+@Component
+@ConditionalOnProperty(name = "traffic.transport", havingValue = "kafka", matchIfMissing = true)
+public class KafkaTrafficTransport implements TrafficTransport {
+
+    private final KafkaTemplate<String, String> kafkaTemplate;
+
+    public KafkaTrafficTransport(KafkaTemplate<String, String> kafkaTemplate) {
+        this.kafkaTemplate = kafkaTemplate;
+    }
+
+    @Override
+    public CompletableFuture<Long> send(String topic, String key, String value) {
+        return kafkaTemplate.send(topic, key, value).thenApply(result -> result.getRecordMetadata().offset());
+    }
+}
@@ -0,0 +1,14 @@
+package com.badnetwork.trafficsim.transport;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Where simulated positions are published: Kafka, or the in-process pipeline's ring buffers.
+ */
+public interface TrafficTransport {
+
+    /**
+     * @return completes with the record's position in the topic (its offset on Kafka) once the transport has taken it
+     */
+    CompletableFuture<Long> send(String topic, String key, String value);
+}
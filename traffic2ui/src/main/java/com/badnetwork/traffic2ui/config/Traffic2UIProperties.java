@@ -4,12 +4,24 @@ import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
 @Data
 @Configuration
 @ConfigurationProperties(prefix = "traffic2ui")
 public class Traffic2UIProperties {
     private KafkaConfig kafka = new KafkaConfig();
     private WebSocketConfig websocket = new WebSocketConfig();
+    private BatchConfig batch = new BatchConfig();
+    private ViewportConfig viewport = new ViewportConfig();
+    private StateConfig state = new StateConfig();
+    private AdaptiveRateConfig adaptiveRate = new AdaptiveRateConfig();
+    private ReconstructionConfig reconstruction = new ReconstructionConfig();
+    private RecorderConfig recorder = new RecorderConfig();
+    private DownsampleConfig downsample = new DownsampleConfig();
+    private ReadinessConfig readiness = new ReadinessConfig();
 
     @Data
     public static class KafkaConfig {
@@ -20,5 +32,131 @@ public class Traffic2UIProperties {
     @Data
     public static class WebSocketConfig {
         private String endpoint;
+        /** Frames buffered per session before the overflow policy applies. */
+        private int sendQueueCapacity = 1000;
+        private OverflowPolicy overflowPolicy = OverflowPolicy.DROP_OLDEST;
+        /** Accept permessage-deflate when the client offers it; a client may still decline with ?compress=false. */
+        private boolean permessageDeflate = true;
+        /** Per-session buffer for incoming frames; clients only send small subscribe messages. */
+        private int maxTextMessageBufferSize = 8192;
+        private int maxBinaryMessageBufferSize = 8192;
+    }
+
+    @Data
+    public static class BatchConfig {
+        /** Updates are coalesced per entity and sent as one array frame per tick; 0 sends every record as it arrives. */
+        private long tickMs = 50;
+    }
+
+    @Data
+    public static class ViewportConfig {
+        /** Edge of a spatial index cell in degrees. */
+        private double cellSizeDeg = 0.1;
+        /** Subscriptions covering more cells are matched by bounding box instead of being indexed per cell. */
+        private int maxCellsPerSubscription = 4096;
+    }
+
+    @Data
+    public static class StateConfig {
+        /** Entities without an update for this long are forgotten; 0 keeps them forever. */
+        private long expireAfterMs = 300_000;
+        /** Send every known entity's position to a new session before live updates. */
+        private boolean snapshotOnConnect = true;
+        /** Entities per snapshot frame. */
+        private int snapshotChunkSize = 2000;
+    }
+
+    @Data
+    public static class AdaptiveRateConfig {
+        /** Lower a lagging session's frame rate by coalescing ticks, and raise it again once it catches up. */
+        private boolean enabled = true;
+        /** How often each session's drain rate and backlog are evaluated. */
+        private long evaluateEveryMs = 1000;
+        /** Slowest rate a session is lowered to: at most one frame per this interval. */
+        private long maxIntervalMs = 2000;
+        /** First step down from the full rate; each further step doubles the interval. */
+        private long minIntervalMs = 100;
+        /** Oldest queued frame older than this (or a half-full queue) means the client is behind. */
+        private long lagHighMs = 250;
+        /** Oldest queued frame younger than this, with at most one frame queued, means it has caught up. */
+        private long lagLowMs = 50;
+    }
+
+    @Data
+    public static class ReconstructionConfig {
+        /** Rebuild absolute positions from the delta feed on the server and correct them against the original feed. */
+        private boolean enabled = false;
+        /** Absolute positions the deltas were derived from, used as ground truth for resyncs. */
+        private String originalTopic = "traffic-original";
+        /** Deltas are held this long and released in timestamp order, so reordering within the window is undone. */
+        private long reorderWindowMs = 300;
+        /** An entity's update interval above this multiple of its usual interval counts as a gap. */
+        private double gapFactor = 2.5;
+        /** Reconstructed positions further than this (degrees, either axis) from the truth are snapped back to it. */
+        private double driftThresholdDeg = 0.00001;
+        /** Deltas buffered per entity beyond which the oldest is released early. */
+        private int maxBufferedPerEntity = 256;
+        /** Original positions remembered per entity for comparison with deltas of the same timestamp. */
+        private int truthHistory = 64;
+    }
+
+    @Data
+    public static class RecorderConfig {
+        /** Append the recorded topics to memory-mapped log files and serve them on the playback endpoint. */
+        private boolean enabled = false;
+        private String directory = "recordings";
+        private List<String> topics = List.of("traffic-chaos", "traffic-delta");
+        /** Size of each preallocated, memory-mapped segment file. */
+        private int segmentBytes = 128 * 1024 * 1024;
+        /** One sparse index entry per this many bytes; a seek scans at most this far. */
+        private int indexIntervalBytes = 64 * 1024;
+        /** Oldest segments beyond this count are deleted. */
+        private int retainedSegments = 64;
+        /**
+         * Recorded time between keyframes, snapshots of every entity's absolute position that playback seeks
+         * start from; 0 disables them, and seeking into a delta topic then has no positions to start from.
+         */
+        private long keyframeIntervalMs = 10_000;
+        /** Segment size of the keyframe logs; one keyframe must fit, at roughly 100 bytes per entity. */
+        private int keyframeSegmentBytes = 16 * 1024 * 1024;
+        private String playbackEndpoint = "/playback";
+        /** Largest playback frame; a frame is one contiguous run of records from a segment. */
+        private int playbackMaxFrameBytes = 256 * 1024;
+        private long playbackTickMs = 50;
+    }
+
+    @Data
+    public static class DownsampleConfig {
+        /**
+         * Reduced-rate levels a client can subscribe to instead of the full stream, by name: each sends the
+         * latest position of every entity that moved, once per period.
+         */
+        private Map<String, Long> ratePeriodsMs = new LinkedHashMap<>(Map.of("1hz", 1000L, "0.1hz", 10_000L));
+        /** Name of the level that sends entity counts per coarse grid cell instead of entities. */
+        private String clusterLevel = "cells";
+        private long clusterPeriodMs = 1000;
+        private double clusterCellSizeDeg = 1.0;
+
+        public boolean hasLevel(String level) {
+            return ratePeriodsMs.containsKey(level) || clusterLevel.equals(level);
+        }
+    }
+
+    @Data
+    public static class ReadinessConfig {
+        /** Report readiness once Kafka is reachable and every running listener has partitions assigned. */
+        private boolean enabled = true;
+        /** Created while ready and deleted otherwise, besides /actuator/health/readiness; none when empty. */
+        private String file = "";
+        private long checkIntervalMs = 1000;
+    }
+
+    public enum OverflowPolicy {
+        /** Discard the oldest queued message to make room. */
+        DROP_OLDEST,
+        /** Merge the two oldest queued frames, keeping one update per entity. */
+        COALESCE_BY_ENTITY,
+        /** Close the session; the client is expected to reconnect. */
+        DISCONNECT
     }
 }
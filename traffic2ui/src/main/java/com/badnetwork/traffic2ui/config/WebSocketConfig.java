@@ -1,11 +1,15 @@
 package com.badnetwork.traffic2ui.config;
 
+import com.badnetwork.traffic2ui.handler.CompressionHandshakeHandler;
+import com.badnetwork.traffic2ui.handler.PlaybackWebSocketHandler;
 import com.badnetwork.traffic2ui.handler.TrafficWebSocketHandler;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.socket.config.annotation.EnableWebSocket;
 import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
 import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
+import org.springframework.web.socket.server.standard.ServletServerContainerFactoryBean;
 
 @Configuration
 @EnableWebSocket
@@ -13,11 +17,25 @@ import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry
 public class WebSocketConfig implements WebSocketConfigurer {
 
     private final TrafficWebSocketHandler trafficWebSocketHandler;
+    private final PlaybackWebSocketHandler playbackWebSocketHandler;
     private final Traffic2UIProperties properties;
 
     @Override
     public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
         registry.addHandler(trafficWebSocketHandler, properties.getWebsocket().getEndpoint())
+                .setHandshakeHandler(new CompressionHandshakeHandler(properties.getWebsocket().isPermessageDeflate()))
                 .setAllowedOrigins("*");
+        if (properties.getRecorder().isEnabled()) {
+            registry.addHandler(playbackWebSocketHandler, properties.getRecorder().getPlaybackEndpoint())
+                    .setAllowedOrigins("*");
+        }
+    }
+
+    @Bean
+    public ServletServerContainerFactoryBean createWebSocketContainer() {
+        ServletServerContainerFactoryBean container = new ServletServerContainerFactoryBean();
+        container.setMaxTextMessageBufferSize(properties.getWebsocket().getMaxTextMessageBufferSize());
+        container.setMaxBinaryMessageBufferSize(properties.getWebsocket().getMaxBinaryMessageBufferSize());
+        return container;
     }
 }
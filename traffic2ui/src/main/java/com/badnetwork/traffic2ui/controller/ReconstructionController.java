@@ -0,0 +1,24 @@
+package com.badnetwork.traffic2ui.controller;
+
+import com.badnetwork.traffic2ui.model.ReconstructionStats;
+import com.badnetwork.traffic2ui.service.DeltaReconstructor;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/reconstruction")
+@CrossOrigin(origins = "http://localhost:3000")
+@RequiredArgsConstructor
+public class ReconstructionController {
+
+    private final DeltaReconstructor deltaReconstructor;
+
+    @GetMapping
+    public ResponseEntity<ReconstructionStats> getStats() {
+        return ResponseEntity.ok(deltaReconstructor.getStats());
+    }
+}
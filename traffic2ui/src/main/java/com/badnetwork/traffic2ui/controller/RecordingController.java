@@ -0,0 +1,32 @@
+package com.badnetwork.traffic2ui.controller;
+
+import com.badnetwork.traffic2ui.model.RecordingInfo;
+import com.badnetwork.traffic2ui.recorder.TrafficRecorder;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/recordings")
+@CrossOrigin(origins = "http://localhost:3000")
+@RequiredArgsConstructor
+public class RecordingController {
+
+    private final TrafficRecorder trafficRecorder;
+
+    /**
+     * Time range available for playback per recorded topic.
+     */
+    @GetMapping
+    public ResponseEntity<List<RecordingInfo>> getRecordings() {
+        return ResponseEntity.ok(trafficRecorder.getLogs().values().stream()
+                .map(log -> new RecordingInfo(log.getName(), log.firstTimestamp(), log.lastTimestamp(),
+                        log.segmentCount(), log.sizeBytes()))
+                .toList());
+    }
+}
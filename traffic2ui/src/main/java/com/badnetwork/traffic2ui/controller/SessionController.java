@@ -0,0 +1,37 @@
+package com.badnetwork.traffic2ui.controller;
+
+import com.badnetwork.traffic2ui.handler.TrafficWebSocketHandler;
+import com.badnetwork.traffic2ui.model.SessionStats;
+import com.badnetwork.traffic2ui.model.SessionSummary;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+@RestController
+@RequestMapping("/sessions")
+@CrossOrigin(origins = "http://localhost:3000")
+@RequiredArgsConstructor
+public class SessionController {
+
+    private final TrafficWebSocketHandler webSocketHandler;
+
+    @GetMapping
+    public ResponseEntity<List<SessionStats>> getSessions() {
+        return ResponseEntity.ok(webSocketHandler.getSessionStats());
+    }
+
+    /**
+     * Session count and heap in use, sampled by the load-test client to estimate memory per connection.
+     */
+    @GetMapping("/summary")
+    public ResponseEntity<SessionSummary> getSummary() {
+        long heapUsed = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+        return ResponseEntity.ok(new SessionSummary(webSocketHandler.getSessionCount(), heapUsed));
+    }
+}
@@ -0,0 +1,314 @@
+package com.badnetwork.traffic2ui.handler;
+
+import com.badnetwork.traffic2ui.config.Traffic2UIProperties.AdaptiveRateConfig;
+import com.badnetwork.traffic2ui.config.Traffic2UIProperties.OverflowPolicy;
+import com.badnetwork.traffic2ui.model.EntityUpdate;
+import com.badnetwork.traffic2ui.model.SessionStats;
+import com.badnetwork.traffic2ui.model.Viewport;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A WebSocket session with a bounded outbound frame queue drained by its own virtual thread.
+ * {@link #offer} never blocks, so a slow client cannot stall the caller (the Kafka listener);
+ * it only ever sees the overflow policy applied to its own queue.
+ * <p>
+ * With adaptive rate enabled the session also measures its own drain rate and backlog: while the client
+ * falls behind, live frames arriving within the current interval are merged into the last queued frame
+ * instead of queued behind it, so a slow client receives fewer, fuller frames rather than stale ones.
+ */
+@Slf4j
+public class ClientSession {
+
+    private final WebSocketSession session;
+    private final int capacity;
+    private final OverflowPolicy overflowPolicy;
+    private final FrameEncoder frameEncoder;
+    private final FrameFormat format;
+    private final AdaptiveRateConfig adaptiveRate;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final ArrayDeque<Queued> queue = new ArrayDeque<>();
+    // Dictionary frames: unbounded and sent ahead of data frames, which may only reference indices already sent
+    private final ArrayDeque<SharedFrame> controlQueue = new ArrayDeque<>();
+    private boolean closeRequested = false;
+
+    private final AtomicLong sentCount = new AtomicLong(0);
+    private final AtomicLong droppedCount = new AtomicLong(0);
+    private final AtomicLong coalescedCount = new AtomicLong(0);
+
+    // Adaptive rate state, guarded by lock
+    private long intervalNanos = 0;
+    private long windowStartNanos = System.nanoTime();
+    private long windowStartSent = 0;
+    private double drainRate = 0;
+
+    private final Thread writer;
+
+    // Current subscription; cells it is indexed under, or null when matched by bounding box only
+    private volatile Viewport viewport;
+    private volatile List<Long> subscribedCells;
+
+    public ClientSession(WebSocketSession session, int capacity, OverflowPolicy overflowPolicy,
+                         FrameEncoder frameEncoder, FrameFormat format, AdaptiveRateConfig adaptiveRate) {
+        this.session = session;
+        this.capacity = Math.max(2, capacity);
+        this.overflowPolicy = overflowPolicy;
+        this.frameEncoder = frameEncoder;
+        this.format = format;
+        this.adaptiveRate = adaptiveRate;
+        this.writer = Thread.ofVirtual().name("ws-writer-" + session.getId()).start(this::drain);
+    }
+
+    public String getId() {
+        return session.getId();
+    }
+
+    public Viewport getViewport() {
+        return viewport;
+    }
+
+    public void setViewport(Viewport viewport) {
+        this.viewport = viewport;
+    }
+
+    public List<Long> getSubscribedCells() {
+        return subscribedCells;
+    }
+
+    public void setSubscribedCells(List<Long> subscribedCells) {
+        this.subscribedCells = subscribedCells;
+    }
+
+    public FrameFormat getFormat() {
+        return format;
+    }
+
+    /**
+     * Queues a live frame for this client, coalesced into the previous one if the client is rate limited,
+     * and applies the overflow policy if the queue is full.
+     */
+    public void offer(SharedFrame frame) {
+        enqueue(frame, true);
+    }
+
+    /**
+     * Queues a snapshot frame; never coalesced by the adaptive rate, as it can be arbitrarily large.
+     */
+    public void offerSnapshot(SharedFrame frame) {
+        enqueue(frame, false);
+    }
+
+    private void enqueue(SharedFrame frame, boolean live) {
+        lock.lock();
+        try {
+            if (closeRequested) {
+                return;
+            }
+            long now = System.nanoTime();
+            if (adaptiveRate.isEnabled()) {
+                adaptRate(now);
+                Queued tail = queue.peekLast();
+                if (live && tail != null && tail.live && now - tail.enqueuedNanos < intervalNanos
+                        && !frame.isOpaque() && !tail.frame.isOpaque()) {
+                    queue.pollLast();
+                    queue.offerLast(new Queued(merge(tail.frame, frame), tail.enqueuedNanos, true));
+                    coalescedCount.incrementAndGet();
+                    return;
+                }
+            }
+            if (queue.size() >= capacity) {
+                switch (overflowPolicy) {
+                    case DISCONNECT -> {
+                        log.warn("Send queue full for session {}, disconnecting", session.getId());
+                        closeRequested = true;
+                        notEmpty.signal();
+                        return;
+                    }
+                    case COALESCE_BY_ENTITY -> coalesceOldest();
+                    default -> {
+                        queue.pollFirst();
+                        droppedCount.incrementAndGet();
+                    }
+                }
+            }
+            queue.offerLast(new Queued(frame, now, live));
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Queues a control frame ahead of every data frame; control frames are never dropped or coalesced.
+     */
+    public void offerControl(SharedFrame frame) {
+        lock.lock();
+        try {
+            if (!closeRequested) {
+                controlQueue.offerLast(frame);
+                notEmpty.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Once per evaluation window, doubles the interval between frames while the client is behind and
+     * halves it (back to every tick) once it has caught up.
+     */
+    private void adaptRate(long now) {
+        long elapsed = now - windowStartNanos;
+        if (elapsed < TimeUnit.MILLISECONDS.toNanos(adaptiveRate.getEvaluateEveryMs())) {
+            return;
+        }
+        long sent = sentCount.get();
+        drainRate = (sent - windowStartSent) * 1e9 / elapsed;
+        windowStartNanos = now;
+        windowStartSent = sent;
+
+        Queued oldest = queue.peekFirst();
+        long lagMs = oldest == null ? 0 : TimeUnit.NANOSECONDS.toMillis(now - oldest.enqueuedNanos);
+        long intervalMs = TimeUnit.NANOSECONDS.toMillis(intervalNanos);
+        long adjusted = intervalMs;
+        if (lagMs > adaptiveRate.getLagHighMs() || queue.size() > capacity / 2) {
+            adjusted = Math.min(adaptiveRate.getMaxIntervalMs(),
+                    intervalMs == 0 ? adaptiveRate.getMinIntervalMs() : intervalMs * 2);
+        } else if (lagMs < adaptiveRate.getLagLowMs() && queue.size() <= 1 && intervalMs > 0) {
+            adjusted = intervalMs / 2 < adaptiveRate.getMinIntervalMs() ? 0 : intervalMs / 2;
+        }
+        if (adjusted != intervalMs) {
+            log.debug("Session {} frame interval {} -> {} ms (drain {}/s, {} queued, lag {} ms)",
+                    session.getId(), intervalMs, adjusted, Math.round(drainRate), queue.size(), lagMs);
+            intervalNanos = TimeUnit.MILLISECONDS.toNanos(adjusted);
+        }
+    }
+
+    /**
+     * Merges the two oldest frames into one, keeping a single update per entity, so no delta is lost.
+     */
+    private void coalesceOldest() {
+        Queued first = queue.pollFirst();
+        if (first.frame.isOpaque() || queue.peekFirst().frame.isOpaque()) {
+            // Not entity updates, so nothing to merge; the older frame is superseded
+            droppedCount.incrementAndGet();
+            return;
+        }
+        Queued second = queue.pollFirst();
+        queue.offerFirst(new Queued(merge(first.frame, second.frame), first.enqueuedNanos, first.live && second.live));
+        coalescedCount.incrementAndGet();
+    }
+
+    private SharedFrame merge(SharedFrame earlier, SharedFrame later) {
+        Map<String, EntityUpdate> merged = new LinkedHashMap<>();
+        Map<String, EntityUpdate> positions = new LinkedHashMap<>();
+        for (SharedFrame frame : List.of(earlier, later)) {
+            for (EntityUpdate update : frame.getUpdates()) {
+                merged.merge(update.getId(), update.copy(), EntityUpdate::merge);
+            }
+            // Positions are absolute, so the later one simply wins
+            frame.getPositions().forEach(position -> positions.put(position.getId(), position));
+        }
+        // Encoded lazily by the writer so the caller never pays for it
+        return frameEncoder.frame(new ArrayList<>(merged.values()), new ArrayList<>(positions.values()));
+    }
+
+    /**
+     * @return the next message to send, or null once the session should close
+     */
+    private SharedFrame take() throws InterruptedException {
+        lock.lock();
+        try {
+            while (queue.isEmpty() && controlQueue.isEmpty() && !closeRequested) {
+                notEmpty.await();
+            }
+            if (closeRequested) {
+                return null;
+            }
+            if (!controlQueue.isEmpty()) {
+                return controlQueue.pollFirst();
+            }
+            return queue.pollFirst().frame;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void drain() {
+        try {
+            SharedFrame frame;
+            while ((frame = take()) != null) {
+                // Only this thread writes to the session, so sends never interleave
+                session.sendMessage(frame.messageFor(format));
+                sentCount.incrementAndGet();
+            }
+            if (session.isOpen()) {
+                session.close(CloseStatus.SESSION_NOT_RELIABLE);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            log.error("Error sending message to session {}: {}", session.getId(), e.getMessage());
+            closeQuietly();
+        }
+    }
+
+    private void closeQuietly() {
+        try {
+            session.close(CloseStatus.SERVER_ERROR);
+        } catch (IOException ignored) {
+        }
+    }
+
+    /**
+     * Stops the writer; queued messages are discarded.
+     */
+    public void close() {
+        lock.lock();
+        try {
+            closeRequested = true;
+            queue.clear();
+            controlQueue.clear();
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public SessionStats getStats() {
+        lock.lock();
+        try {
+            Queued oldest = queue.peekFirst();
+            long lagMs = oldest == null ? 0 : TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - oldest.enqueuedNanos);
+            return new SessionStats(
+                    session.getId(),
+                    queue.size(),
+                    sentCount.get(),
+                    droppedCount.get(),
+                    coalescedCount.get(),
+                    lagMs,
+                    TimeUnit.NANOSECONDS.toMillis(intervalNanos),
+                    drainRate
+            );
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private record Queued(SharedFrame frame, long enqueuedNanos, boolean live) {
+    }
+}
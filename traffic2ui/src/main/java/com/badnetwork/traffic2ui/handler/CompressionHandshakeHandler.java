@@ -0,0 +1,36 @@
+package com.badnetwork.traffic2ui.handler;
+
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.web.socket.WebSocketExtension;
+import org.springframework.web.socket.server.support.DefaultHandshakeHandler;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.util.List;
+
+/**
+ * Negotiates permessage-deflate only when enabled server-wide and not declined with {@code ?compress=false}.
+ * Compression trades CPU per session and frame for bandwidth; packed frames already shrink the payload,
+ * so high-fan-out deployments may prefer it off.
+ */
+public class CompressionHandshakeHandler extends DefaultHandshakeHandler {
+
+    private static final String PERMESSAGE_DEFLATE = "permessage-deflate";
+
+    private final boolean deflateEnabled;
+
+    public CompressionHandshakeHandler(boolean deflateEnabled) {
+        this.deflateEnabled = deflateEnabled;
+    }
+
+    @Override
+    protected List<WebSocketExtension> filterRequestedExtensions(ServerHttpRequest request,
+                                                                 List<WebSocketExtension> requestedExtensions,
+                                                                 List<WebSocketExtension> supportedExtensions) {
+        List<WebSocketExtension> accepted = super.filterRequestedExtensions(request, requestedExtensions, supportedExtensions);
+        if (deflateEnabled && !"false".equalsIgnoreCase(
+                UriComponentsBuilder.fromUri(request.getURI()).build().getQueryParams().getFirst("compress"))) {
+            return accepted;
+        }
+        return accepted.stream().filter(extension -> !PERMESSAGE_DEFLATE.equalsIgnoreCase(extension.getName())).toList();
+    }
+}
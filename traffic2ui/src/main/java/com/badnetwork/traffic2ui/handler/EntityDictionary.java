@@ -0,0 +1,97 @@
+package com.badnetwork.traffic2ui.handler;
+
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+/**
+ * Server-wide entity id to index mapping used by the packed frame format. Indices are assigned in order
+ * of first appearance; {@link #retain} frees those of ids no longer stored, and they are reused one prune
+ * later, so the dictionary stays as large as the fleet rather than every id ever seen. A reused index is
+ * sent in a dictionary frame ahead of any data referencing it, overwriting the client's previous entry.
+ * Modified from a single thread (under the state store lock); read from any writer thread.
+ */
+@Component
+public class EntityDictionary {
+
+    private final Map<String, Integer> indices = new ConcurrentHashMap<>();
+    // Id at each index, null where it has been freed
+    private final List<String> ids = new ArrayList<>();
+    private final ArrayDeque<Integer> free = new ArrayDeque<>();
+    // Freed by the last prune; not reused until the next, so frames queued before it cannot be misread
+    private final List<Integer> freeing = new ArrayList<>();
+
+    /**
+     * @return true if the id was not known before and has just been given an index
+     */
+    public boolean register(String id) {
+        if (indices.containsKey(id)) {
+            return false;
+        }
+        synchronized (ids) {
+            Integer index = free.poll();
+            if (index == null) {
+                index = ids.size();
+                ids.add(id);
+            } else {
+                ids.set(index, id);
+            }
+            indices.put(id, index);
+        }
+        return true;
+    }
+
+    /**
+     * @return the id's index, or -1 if it is not registered
+     */
+    public int indexOf(String id) {
+        return indices.getOrDefault(id, -1);
+    }
+
+    /**
+     * Forgets every id the predicate rejects, freeing its index.
+     *
+     * @return the number of ids forgotten
+     */
+    public int retain(Predicate<String> keep) {
+        synchronized (ids) {
+            free.addAll(freeing);
+            freeing.clear();
+            Iterator<Map.Entry<String, Integer>> entries = indices.entrySet().iterator();
+            while (entries.hasNext()) {
+                Map.Entry<String, Integer> entry = entries.next();
+                if (!keep.test(entry.getKey())) {
+                    entries.remove();
+                    ids.set(entry.getValue(), null);
+                    freeing.add(entry.getValue());
+                }
+            }
+            return freeing.size();
+        }
+    }
+
+    /**
+     * @return every registered id, in index order
+     */
+    public List<String> snapshot() {
+        synchronized (ids) {
+            List<String> registered = new ArrayList<>(indices.size());
+            for (String id : ids) {
+                if (id != null) {
+                    registered.add(id);
+                }
+            }
+            return registered;
+        }
+    }
+
+    public int size() {
+        return indices.size();
+    }
+}
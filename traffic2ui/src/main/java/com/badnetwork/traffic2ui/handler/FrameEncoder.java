@@ -0,0 +1,68 @@
+package com.badnetwork.traffic2ui.handler;
+
+import com.badnetwork.traffic2ui.model.EntityUpdate;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.io.UncheckedIOException;
+import java.util.List;
+
+/**
+ * Encodes a batch of entity updates into frame payloads.
+ */
+@Component
+@RequiredArgsConstructor
+public class FrameEncoder {
+
+    private final ObjectMapper objectMapper;
+    private final EntityDictionary entityDictionary;
+
+    /**
+     * @return the updates as a UTF-8 JSON array
+     */
+    public byte[] encodeJson(List<EntityUpdate> updates) {
+        try {
+            return objectMapper.writeValueAsBytes(updates);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @return the absolute positions as a {@link PackedFrameCodec} positions frame
+     */
+    public byte[] encodePacked(List<EntityUpdate> positions) {
+        return PackedFrameCodec.encodePositions(positions, entityDictionary);
+    }
+
+    /**
+     * A frame whose updates are already absolute positions (snapshots, viewport frames).
+     */
+    public SharedFrame frame(List<EntityUpdate> positions) {
+        return new SharedFrame(positions, positions, this);
+    }
+
+    public SharedFrame frame(List<EntityUpdate> updates, List<EntityUpdate> positions) {
+        return new SharedFrame(updates, positions, this);
+    }
+
+    /**
+     * A dictionary frame giving each of the ids its current index.
+     */
+    public SharedFrame dictionaryFrame(List<String> ids) {
+        return SharedFrame.control(PackedFrameCodec.encodeDictionary(ids, entityDictionary));
+    }
+
+    /**
+     * A frame holding any other JSON value, e.g. a {@link com.badnetwork.traffic2ui.model.CellCountFrame}.
+     */
+    public SharedFrame jsonFrame(Object value) {
+        try {
+            return SharedFrame.json(objectMapper.writeValueAsBytes(value));
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
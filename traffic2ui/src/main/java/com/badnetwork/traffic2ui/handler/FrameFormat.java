@@ -0,0 +1,35 @@
+package com.badnetwork.traffic2ui.handler;
+
+import java.util.Arrays;
+
+/**
+ * Wire format of a session's frames, chosen with the {@code format} query parameter of the socket URL.
+ */
+public enum FrameFormat {
+
+    /**
+     * JSON array in a text frame, for clients that need text frames. The container takes text as a String
+     * and encodes it to UTF-8 again for every session.
+     */
+    JSON("json"),
+    /** The same UTF-8 JSON in a binary frame (default); every session sends the one shared encoded buffer. */
+    JSON_BINARY("json-binary"),
+    /**
+     * {@link PackedFrameCodec} binary frames: entity ids replaced by dictionary indices and absolute
+     * fixed-point positions, a fraction of the JSON size.
+     */
+    PACKED("packed");
+
+    private final String parameter;
+
+    FrameFormat(String parameter) {
+        this.parameter = parameter;
+    }
+
+    public static FrameFormat fromParameter(String parameter) {
+        return Arrays.stream(values())
+                .filter(format -> format.parameter.equalsIgnoreCase(parameter))
+                .findFirst()
+                .orElse(JSON_BINARY);
+    }
+}
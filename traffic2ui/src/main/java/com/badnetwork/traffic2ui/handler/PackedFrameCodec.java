@@ -0,0 +1,80 @@
+package com.badnetwork.traffic2ui.handler;
+
+import com.badnetwork.traffic2ui.model.EntityUpdate;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Packed binary frame layout (little-endian, readable with a JS DataView).
+ * <pre>
+ * DICTIONARY: u8 type=1, u32 count, count x { u32 index, u16 idLength, idLength x u8 UTF-8 }
+ * POSITIONS:  u8 type=2, u32 count, i64 baseTimestampMs,
+ *             count x { u32 index, i32 lat*1e7, i32 lon*1e7, i32 timestampMs - base }
+ * </pre>
+ * Positions are absolute, so a dropped frame costs one position, never a permanent offset.
+ * Indices of expired entities are reused; a dictionary entry for an index replaces the earlier one.
+ */
+public final class PackedFrameCodec {
+
+    public static final byte DICTIONARY = 1;
+    public static final byte POSITIONS = 2;
+    private static final double FIXED_POINT_SCALE = 1e7;
+    private static final int POSITION_BYTES = 16;
+
+    private PackedFrameCodec() {
+    }
+
+    /**
+     * Ids not in the dictionary are left out.
+     */
+    public static byte[] encodeDictionary(List<String> ids, EntityDictionary dictionary) {
+        byte[][] encodedIds = new byte[ids.size()][];
+        int[] indices = new int[ids.size()];
+        int size = 1 + 4;
+        int count = 0;
+        for (String id : ids) {
+            int index = dictionary.indexOf(id);
+            if (index < 0) {
+                continue;
+            }
+            indices[count] = index;
+            encodedIds[count] = id.getBytes(StandardCharsets.UTF_8);
+            size += 4 + 2 + encodedIds[count].length;
+            count++;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.put(DICTIONARY).putInt(count);
+        for (int i = 0; i < count; i++) {
+            buffer.putInt(indices[i]).putShort((short) encodedIds[i].length).put(encodedIds[i]);
+        }
+        return buffer.array();
+    }
+
+    public static byte[] encodePositions(List<EntityUpdate> positions, EntityDictionary dictionary) {
+        long base = positions.stream().mapToLong(EntityUpdate::getTimestamp).min().orElse(0);
+        ByteBuffer buffer = ByteBuffer.allocate(1 + 4 + 8 + positions.size() * POSITION_BYTES)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        buffer.put(POSITIONS).putInt(0).putLong(base);
+
+        int count = 0;
+        for (EntityUpdate position : positions) {
+            int index = dictionary.indexOf(position.getId());
+            if (index < 0 || !position.isAbsolute()) {
+                continue;
+            }
+            buffer.putInt(index)
+                    .putInt((int) Math.round(position.getLat() * FIXED_POINT_SCALE))
+                    .putInt((int) Math.round(position.getLon() * FIXED_POINT_SCALE))
+                    .putInt((int) (position.getTimestamp() - base));
+            count++;
+        }
+        buffer.putInt(1, count);
+        byte[] packed = new byte[buffer.position()];
+        System.arraycopy(buffer.array(), 0, packed, 0, packed.length);
+        return packed;
+    }
+}
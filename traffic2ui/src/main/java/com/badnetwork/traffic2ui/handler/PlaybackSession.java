@@ -0,0 +1,173 @@
+package com.badnetwork.traffic2ui.handler;
+
+import com.badnetwork.traffic2ui.recorder.SegmentedLog;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Replays a recorded log to one client from its own virtual thread, pacing records by their recorded
+ * timestamps scaled by the playback speed. Each frame is a one-byte {@link #RECORDS} header followed by a
+ * run of records sent straight from the mapped segment, as a two-part binary message. A seek first sends
+ * the last keyframe at or before the target, then the records between the keyframe and the target at
+ * once, so a delta topic is played from absolute positions.
+ */
+@Slf4j
+public class PlaybackSession {
+
+    /** Frame type after the packed DICTIONARY (1) and POSITIONS (2) types. */
+    public static final byte RECORDS = 3;
+    private static final byte[] HEADER = {RECORDS};
+
+    private final WebSocketSession session;
+    private final SegmentedLog recording;
+    private final SegmentedLog keyframes;
+    private final int maxFrameBytes;
+    private final long tickMs;
+    // Wakes the player early on control messages; never an interrupt, which would close the socket channel mid-write
+    private final Object wakeUp = new Object();
+
+    // Set by control messages, consumed by the player thread
+    private volatile Long seekRequest;
+    private volatile double speed;
+    private volatile boolean paused;
+    private volatile boolean speedChanged;
+    private volatile boolean closed;
+
+    /**
+     * @param keyframes the recording's keyframe log, or null to seek into the recording alone
+     */
+    public PlaybackSession(WebSocketSession session, SegmentedLog recording, SegmentedLog keyframes, long from,
+                           double speed, int maxFrameBytes, long tickMs) {
+        this.session = session;
+        this.recording = recording;
+        this.keyframes = keyframes;
+        this.maxFrameBytes = maxFrameBytes;
+        this.tickMs = tickMs;
+        this.seekRequest = from;
+        this.speed = speed;
+        Thread.ofVirtual().name("ws-playback-" + session.getId()).start(this::play);
+    }
+
+    public void seek(long timestamp) {
+        seekRequest = timestamp;
+        wake();
+    }
+
+    public void setSpeed(double speed) {
+        if (speed > 0) {
+            this.speed = speed;
+            speedChanged = true;
+            wake();
+        }
+    }
+
+    public void setPaused(boolean paused) {
+        this.paused = paused;
+        speedChanged = true;
+        wake();
+    }
+
+    public void close() {
+        closed = true;
+        wake();
+    }
+
+    private void wake() {
+        synchronized (wakeUp) {
+            wakeUp.notifyAll();
+        }
+    }
+
+    private void play() {
+        SegmentedLog.Cursor cursor = null;
+        // Recorded time anchorRecorded is played at wall time anchorNanos, advancing at playSpeed
+        long anchorRecorded = 0;
+        long anchorNanos = 0;
+        double playSpeed = speed;
+        try {
+            while (!closed && session.isOpen()) {
+                Long seek = seekRequest;
+                if (seek != null) {
+                    seekRequest = null;
+                    cursor = seekFromKeyframe(seek);
+                    anchorRecorded = seek;
+                    anchorNanos = System.nanoTime();
+                }
+                long recordedNow = anchorRecorded
+                        + (long) (TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - anchorNanos) * playSpeed);
+                if (speedChanged) {
+                    speedChanged = false;
+                    anchorRecorded = recordedNow;
+                    anchorNanos = System.nanoTime();
+                    playSpeed = speed;
+                }
+                if (paused) {
+                    pause(tickMs);
+                    anchorNanos = System.nanoTime();
+                    continue;
+                }
+
+                ByteBuffer records = cursor.read(recordedNow, maxFrameBytes);
+                if (records != null) {
+                    send(records);
+                    continue;
+                }
+                Long next = cursor.peekTimestamp();
+                long waitMs = next == null ? tickMs : (long) ((next - recordedNow) / playSpeed);
+                pause(Math.max(1, Math.min(tickMs, waitMs)));
+            }
+        } catch (IOException e) {
+            log.debug("Playback to session {} stopped: {}", session.getId(), e.getMessage());
+            closeQuietly();
+        }
+    }
+
+    /**
+     * Sends the last keyframe at or before {@code timestamp} and every record from it up to the timestamp.
+     *
+     * @return a cursor at the first record with a timestamp of at least {@code timestamp}
+     */
+    private SegmentedLog.Cursor seekFromKeyframe(long timestamp) throws IOException {
+        ByteBuffer keyframe = keyframes == null ? null : keyframes.floorRecord(timestamp);
+        if (keyframe == null) {
+            return recording.seek(timestamp);
+        }
+        SegmentedLog.Cursor cursor = recording.seek(keyframe.order(ByteOrder.LITTLE_ENDIAN).getLong(0));
+        send(keyframe);
+        ByteBuffer records;
+        while ((records = cursor.read(timestamp, maxFrameBytes)) != null) {
+            send(records);
+        }
+        return cursor;
+    }
+
+    private void send(ByteBuffer records) throws IOException {
+        session.sendMessage(new BinaryMessage(ByteBuffer.wrap(HEADER), false));
+        session.sendMessage(new BinaryMessage(records, true));
+    }
+
+    private void pause(long millis) {
+        try {
+            synchronized (wakeUp) {
+                wakeUp.wait(millis);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            closed = true;
+        }
+    }
+
+    private void closeQuietly() {
+        try {
+            session.close(CloseStatus.SERVER_ERROR);
+        } catch (IOException ignored) {
+        }
+    }
+}
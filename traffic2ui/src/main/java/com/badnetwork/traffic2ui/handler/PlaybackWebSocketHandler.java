@@ -0,0 +1,103 @@
+package com.badnetwork.traffic2ui.handler;
+
+import com.badnetwork.traffic2ui.config.Traffic2UIProperties;
+import com.badnetwork.traffic2ui.model.PlaybackCommand;
+import com.badnetwork.traffic2ui.recorder.SegmentedLog;
+import com.badnetwork.traffic2ui.recorder.TrafficRecorder;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.TextWebSocketHandler;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Streams a recorded topic from {@code ?from=<epoch ms>} (default: the start of the recording) at
+ * {@code ?speed=} times real time; the client may seek, change speed, pause and resume at any point.
+ */
+@Slf4j
+@Component
+public class PlaybackWebSocketHandler extends TextWebSocketHandler {
+
+    private final Traffic2UIProperties.RecorderConfig config;
+    private final TrafficRecorder trafficRecorder;
+    private final ObjectMapper objectMapper;
+    private final Map<String, PlaybackSession> sessions = new ConcurrentHashMap<>();
+
+    public PlaybackWebSocketHandler(Traffic2UIProperties properties, TrafficRecorder trafficRecorder,
+                                    ObjectMapper objectMapper) {
+        this.config = properties.getRecorder();
+        this.trafficRecorder = trafficRecorder;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public void afterConnectionEstablished(WebSocketSession session) throws IOException {
+        MultiValueMap<String, String> params = session.getUri() == null
+                ? new LinkedMultiValueMap<>()
+                : UriComponentsBuilder.fromUri(session.getUri()).build().getQueryParams();
+        String topic = params.getFirst("topic") != null ? params.getFirst("topic") : config.getTopics().get(0);
+        SegmentedLog recording = trafficRecorder.getLog(topic);
+        if (recording == null) {
+            session.close(CloseStatus.POLICY_VIOLATION.withReason("Topic is not recorded: " + topic));
+            return;
+        }
+
+        try {
+            long from = params.getFirst("from") != null ? Long.parseLong(params.getFirst("from")) : recording.firstTimestamp();
+            double speed = params.getFirst("speed") != null ? Double.parseDouble(params.getFirst("speed")) : 1.0;
+            sessions.put(session.getId(), new PlaybackSession(session, recording,
+                    trafficRecorder.getKeyframes(topic), from, speed > 0 ? speed : 1.0,
+                    config.getPlaybackMaxFrameBytes(), config.getPlaybackTickMs()));
+            log.info("Playback session {} started on {} from {} at {}x", session.getId(), topic, from, speed);
+        } catch (NumberFormatException e) {
+            session.close(CloseStatus.BAD_DATA.withReason("Invalid from or speed"));
+        }
+    }
+
+    @Override
+    protected void handleTextMessage(WebSocketSession session, TextMessage message) {
+        PlaybackSession playback = sessions.get(session.getId());
+        if (playback == null) {
+            return;
+        }
+        try {
+            PlaybackCommand command = objectMapper.readValue(message.getPayload(), PlaybackCommand.class);
+            switch (String.valueOf(command.getType())) {
+                case PlaybackCommand.SEEK -> {
+                    if (command.getFrom() != null) {
+                        playback.seek(command.getFrom());
+                    }
+                }
+                case PlaybackCommand.SPEED -> {
+                    if (command.getSpeed() != null) {
+                        playback.setSpeed(command.getSpeed());
+                    }
+                }
+                case PlaybackCommand.PAUSE -> playback.setPaused(true);
+                case PlaybackCommand.RESUME -> playback.setPaused(false);
+                default -> log.debug("Ignoring playback command {} from {}", command.getType(), session.getId());
+            }
+        } catch (JsonProcessingException e) {
+            log.warn("Ignoring unreadable playback command from session {}: {}", session.getId(), e.getMessage());
+        }
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
+        PlaybackSession playback = sessions.remove(session.getId());
+        if (playback != null) {
+            playback.close();
+        }
+        log.info("Playback session closed: {} - {}", session.getId(), status);
+    }
+}
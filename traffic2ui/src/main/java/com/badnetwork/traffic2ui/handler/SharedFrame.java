@@ -0,0 +1,117 @@
+package com.badnetwork.traffic2ui.handler;
+
+import com.badnetwork.traffic2ui.model.EntityUpdate;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * One outgoing frame shared by every session with the same subscription. Each wire format is encoded at
+ * most once, by whichever writer needs it first, into an immutable buffer all binary sessions send from
+ * without copying. Text sessions share one message, but the container still encodes its String per session.
+ */
+public final class SharedFrame {
+
+    private final List<EntityUpdate> updates;
+    // Absolute positions of the same entities, for the packed format; may be the updates themselves
+    private final List<EntityUpdate> positions;
+    private final FrameEncoder frameEncoder;
+    // Pre-encoded payload that is not a list of entity updates, so it cannot be merged
+    private final boolean opaque;
+    private volatile byte[] json;
+    private volatile byte[] packed;
+    private volatile TextMessage textMessage;
+
+    SharedFrame(List<EntityUpdate> updates, List<EntityUpdate> positions, FrameEncoder frameEncoder) {
+        this.updates = updates;
+        this.positions = positions;
+        this.frameEncoder = frameEncoder;
+        this.opaque = false;
+    }
+
+    private SharedFrame(byte[] json, byte[] packed) {
+        this.updates = List.of();
+        this.positions = List.of();
+        this.frameEncoder = null;
+        this.opaque = true;
+        this.json = json;
+        this.packed = packed;
+    }
+
+    /**
+     * A packed-only control frame (the entity dictionary); never dropped or coalesced.
+     */
+    static SharedFrame control(byte[] packed) {
+        return new SharedFrame(null, packed);
+    }
+
+    /**
+     * A JSON object frame sent as is in every format; packed clients tell it apart by its leading '{'.
+     */
+    static SharedFrame json(byte[] json) {
+        return new SharedFrame(json, json);
+    }
+
+    public List<EntityUpdate> getUpdates() {
+        return updates;
+    }
+
+    public List<EntityUpdate> getPositions() {
+        return positions;
+    }
+
+    public boolean isOpaque() {
+        return opaque;
+    }
+
+    public WebSocketMessage<?> messageFor(FrameFormat format) {
+        return switch (format) {
+            // A read-only view per send: the session's writes move its position, never the shared bytes
+            case JSON_BINARY -> new BinaryMessage(ByteBuffer.wrap(json()).asReadOnlyBuffer());
+            case PACKED -> new BinaryMessage(ByteBuffer.wrap(packed()).asReadOnlyBuffer());
+            case JSON -> textMessage();
+        };
+    }
+
+    private byte[] json() {
+        byte[] encoded = json;
+        if (encoded == null) {
+            synchronized (this) {
+                encoded = json;
+                if (encoded == null) {
+                    json = encoded = frameEncoder.encodeJson(updates);
+                }
+            }
+        }
+        return encoded;
+    }
+
+    private byte[] packed() {
+        byte[] encoded = packed;
+        if (encoded == null) {
+            synchronized (this) {
+                encoded = packed;
+                if (encoded == null) {
+                    packed = encoded = frameEncoder.encodePacked(positions);
+                }
+            }
+        }
+        return encoded;
+    }
+
+    private TextMessage textMessage() {
+        TextMessage message = textMessage;
+        if (message == null) {
+            synchronized (this) {
+                message = textMessage;
+                if (message == null) {
+                    textMessage = message = new TextMessage(json());
+                }
+            }
+        }
+        return message;
+    }
+}
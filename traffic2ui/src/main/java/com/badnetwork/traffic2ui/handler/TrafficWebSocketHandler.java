@@ -1,44 +1,319 @@
 package com.badnetwork.traffic2ui.handler;
 
+import com.badnetwork.traffic2ui.config.Traffic2UIProperties;
+import com.badnetwork.traffic2ui.model.ClientMessage;
+import com.badnetwork.traffic2ui.model.EntityUpdate;
+import com.badnetwork.traffic2ui.model.SessionStats;
+import com.badnetwork.traffic2ui.model.Viewport;
+import com.badnetwork.traffic2ui.service.EntityStateStore;
+import com.badnetwork.traffic2ui.spatial.GridIndex;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 import org.springframework.web.socket.CloseStatus;
 import org.springframework.web.socket.TextMessage;
 import org.springframework.web.socket.WebSocketSession;
 import org.springframework.web.socket.handler.TextWebSocketHandler;
+import org.springframework.web.util.UriComponentsBuilder;
 
-import java.io.IOException;
-import java.util.Set;
-import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Sessions receive every update until they subscribe to a viewport. Viewport sessions are indexed by
+ * the grid cells their bounding box covers and receive absolute positions of the entities inside it.
+ * Each tick builds one {@link SharedFrame} per distinct subscription, shared by all its sessions.
+ * Sessions subscribed to a downsampled resolution level receive only that level's frames.
+ * Sessions using the packed format also receive {@link EntityDictionary} additions ahead of the frames that use them.
+ */
 @Slf4j
 @Component
 public class TrafficWebSocketHandler extends TextWebSocketHandler {
 
-    private final Set<WebSocketSession> sessions = new CopyOnWriteArraySet<>();
+    private final Traffic2UIProperties properties;
+    private final FrameEncoder frameEncoder;
+    private final EntityStateStore entityStateStore;
+    private final EntityDictionary entityDictionary;
+    private final ObjectMapper objectMapper;
+
+    private final Map<String, ClientSession> sessions = new ConcurrentHashMap<>();
+    private final Set<ClientSession> unfiltered = ConcurrentHashMap.newKeySet();
+    private final Set<ClientSession> packedClients = ConcurrentHashMap.newKeySet();
+    // Viewports too large to index per cell; matched by bounding box on every update
+    private final Set<ClientSession> wideSubscribers = ConcurrentHashMap.newKeySet();
+    private final GridIndex<ClientSession> subscriptionGrid;
+    private final Map<String, Set<ClientSession>> levelSubscribers = new ConcurrentHashMap<>();
+    // Store evictions the dictionary was last pruned after
+    private long prunedAtEvictions;
+
+    public TrafficWebSocketHandler(Traffic2UIProperties properties,
+                                   FrameEncoder frameEncoder,
+                                   EntityStateStore entityStateStore,
+                                   EntityDictionary entityDictionary,
+                                   ObjectMapper objectMapper) {
+        this.properties = properties;
+        this.frameEncoder = frameEncoder;
+        this.entityStateStore = entityStateStore;
+        this.entityDictionary = entityDictionary;
+        this.objectMapper = objectMapper;
+        this.subscriptionGrid = new GridIndex<>(properties.getViewport().getCellSizeDeg());
+    }
 
     @Override
     public void afterConnectionEstablished(WebSocketSession session) {
-        sessions.add(session);
-        log.info("WebSocket connection established: {}", session.getId());
+        Traffic2UIProperties.WebSocketConfig config = properties.getWebsocket();
+        ClientSession client = new ClientSession(session, config.getSendQueueCapacity(), config.getOverflowPolicy(),
+                frameEncoder, requestedFormat(session), properties.getAdaptiveRate());
+        entityStateStore.runExclusive(() -> {
+            if (client.getFormat() == FrameFormat.PACKED) {
+                offerDictionary(client);
+                packedClients.add(client);
+            }
+            if (properties.getState().isSnapshotOnConnect()) {
+                offerInChunks(client, entityStateStore.snapshot());
+            }
+            sessions.put(session.getId(), client);
+            unfiltered.add(client);
+        });
+        log.info("WebSocket connection established: {} ({})", session.getId(), client.getFormat());
+    }
+
+    private void offerDictionary(ClientSession client) {
+        List<String> ids = entityDictionary.snapshot();
+        int chunkSize = Math.max(1, properties.getState().getSnapshotChunkSize());
+        for (int from = 0; from < ids.size(); from += chunkSize) {
+            client.offerControl(frameEncoder.dictionaryFrame(ids.subList(from, Math.min(ids.size(), from + chunkSize))));
+        }
+    }
+
+    private static FrameFormat requestedFormat(WebSocketSession session) {
+        if (session.getUri() == null) {
+            return FrameFormat.JSON_BINARY;
+        }
+        return FrameFormat.fromParameter(
+                UriComponentsBuilder.fromUri(session.getUri()).build().getQueryParams().getFirst("format"));
     }
 
     @Override
     public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
-        sessions.remove(session);
+        ClientSession client = sessions.remove(session.getId());
+        if (client != null) {
+            packedClients.remove(client);
+            unsubscribe(client);
+            client.close();
+        }
         log.info("WebSocket connection closed: {} - {}", session.getId(), status);
     }
 
-    public void broadcast(String message) {
-        TextMessage textMessage = new TextMessage(message);
-        sessions.forEach(session -> {
-            try {
-                if (session.isOpen()) {
-                    session.sendMessage(textMessage);
+    @Override
+    protected void handleTextMessage(WebSocketSession session, TextMessage message) {
+        ClientSession client = sessions.get(session.getId());
+        if (client == null) {
+            return;
+        }
+        try {
+            ClientMessage request = objectMapper.readValue(message.getPayload(), ClientMessage.class);
+            if (ClientMessage.SUBSCRIBE.equals(request.getType())) {
+                if (request.getResolution() != null) {
+                    subscribeLevel(client, request.getResolution());
+                } else {
+                    subscribe(client, request.getBbox());
                 }
-            } catch (IOException e) {
-                log.error("Error sending message to session {}: {}", session.getId(), e.getMessage());
             }
+        } catch (JsonProcessingException e) {
+            log.warn("Ignoring unreadable message from session {}: {}", session.getId(), e.getMessage());
+        }
+    }
+
+    private void subscribeLevel(ClientSession client, String level) {
+        if (!properties.getDownsample().hasLevel(level)) {
+            log.warn("Session {} asked for unknown level {}; keeping its subscription", client.getId(), level);
+            return;
+        }
+        entityStateStore.runExclusive(() -> {
+            unsubscribe(client);
+            client.setViewport(null);
+            levelSubscribers.computeIfAbsent(level, l -> ConcurrentHashMap.newKeySet()).add(client);
+        });
+        log.debug("Session {} subscribed to level {}", client.getId(), level);
+    }
+
+    private void subscribe(ClientSession client, Viewport bbox) {
+        entityStateStore.runExclusive(() -> applySubscription(client, bbox));
+    }
+
+    private void applySubscription(ClientSession client, Viewport bbox) {
+        unsubscribe(client);
+        client.setViewport(bbox);
+        if (bbox == null) {
+            unfiltered.add(client);
+            log.debug("Session {} subscribed to all entities", client.getId());
+            return;
+        }
+
+        List<Long> cells = subscriptionGrid.cellsCovering(bbox, properties.getViewport().getMaxCellsPerSubscription());
+        client.setSubscribedCells(cells);
+        if (cells == null) {
+            wideSubscribers.add(client);
+        } else {
+            cells.forEach(cell -> subscriptionGrid.add(cell, client));
+        }
+        log.debug("Session {} subscribed to {}", client.getId(), bbox);
+
+        // Entities already inside the new viewport, which may not move again for a while
+        List<EntityUpdate> visible = new ArrayList<>();
+        entityStateStore.forEachIn(bbox, visible::add);
+        offerInChunks(client, visible);
+    }
+
+    /**
+     * Queues the updates as frames of at most snapshot-chunk-size entities, encoded by the session's writer.
+     */
+    private void offerInChunks(ClientSession client, List<EntityUpdate> updates) {
+        int chunkSize = Math.max(1, properties.getState().getSnapshotChunkSize());
+        for (int from = 0; from < updates.size(); from += chunkSize) {
+            client.offerSnapshot(frameEncoder.frame(updates.subList(from, Math.min(updates.size(), from + chunkSize))));
+        }
+    }
+
+    private void unsubscribe(ClientSession client) {
+        unfiltered.remove(client);
+        levelSubscribers.values().forEach(clients -> clients.remove(client));
+        wideSubscribers.remove(client);
+        List<Long> cells = client.getSubscribedCells();
+        if (cells != null) {
+            cells.forEach(cell -> subscriptionGrid.remove(cell, client));
+            client.setSubscribedCells(null);
+        }
+    }
+
+    /**
+     * Queues the updates on every interested session; never blocks on a client.
+     * Unfiltered sessions share one frame; viewport sessions get the absolute positions inside their box.
+     * Frames are only queued here and encoded later, once, by the first writer to send them.
+     */
+    public void broadcast(List<EntityUpdate> updates) {
+        pruneDictionary();
+        // Ids are indexed even with no sessions connected, so later dictionaries cover every stored entity
+        List<String> newIds = new ArrayList<>();
+        for (EntityUpdate update : updates) {
+            if (entityDictionary.register(update.getId())) {
+                newIds.add(update.getId());
+            }
+        }
+        if (updates.isEmpty() || sessions.isEmpty()) {
+            return;
+        }
+        if (!newIds.isEmpty() && !packedClients.isEmpty()) {
+            SharedFrame dictionary = frameEncoder.dictionaryFrame(newIds);
+            packedClients.forEach(client -> client.offerControl(dictionary));
+        }
+        if (!unfiltered.isEmpty()) {
+            SharedFrame frame = frameEncoder.frame(updates, packedClients.isEmpty() ? List.of() : absolutePositions(updates));
+            unfiltered.forEach(client -> client.offer(frame));
+        }
+        int levelSessions = levelSubscribers.values().stream().mapToInt(Set::size).sum();
+        if (sessions.size() > unfiltered.size() + levelSessions) {
+            routeToViewports(updates);
+        }
+    }
+
+    /**
+     * Drops the ids of entities the store has expired since the last prune, so their indices can be reused.
+     */
+    private void pruneDictionary() {
+        long evictions = entityStateStore.getEvictionCount();
+        if (evictions != prunedAtEvictions) {
+            prunedAtEvictions = evictions;
+            int pruned = entityDictionary.retain(entityStateStore::contains);
+            log.debug("Pruned {} expired ids from the entity dictionary, {} remain", pruned, entityDictionary.size());
+        }
+    }
+
+    private List<EntityUpdate> absolutePositions(List<EntityUpdate> updates) {
+        List<EntityUpdate> positions = new ArrayList<>(updates.size());
+        for (EntityUpdate update : updates) {
+            EntityUpdate position = entityStateStore.absolute(update.getId());
+            if (position != null) {
+                positions.add(position);
+            }
+        }
+        return positions;
+    }
+
+    private void routeToViewports(List<EntityUpdate> updates) {
+        // Sessions with equal viewports share one group, and so one frame
+        Map<Viewport, ViewportGroup> groups = new HashMap<>();
+        for (EntityUpdate update : updates) {
+            EntityUpdate position = entityStateStore.absolute(update.getId());
+            if (position == null) {
+                continue;
+            }
+            long cell = subscriptionGrid.cellOf(position.getLat(), position.getLon());
+            route(position, subscriptionGrid.itemsIn(cell), groups);
+            route(position, wideSubscribers, groups);
+        }
+        groups.values().forEach(group -> {
+            SharedFrame frame = frameEncoder.frame(group.updates);
+            group.clients.forEach(client -> client.offer(frame));
         });
     }
+
+    private static void route(EntityUpdate position, Set<ClientSession> candidates, Map<Viewport, ViewportGroup> groups) {
+        for (ClientSession client : candidates) {
+            Viewport viewport = client.getViewport();
+            if (viewport != null && viewport.contains(position.getLat(), position.getLon())) {
+                groups.computeIfAbsent(viewport, v -> new ViewportGroup()).add(client, position);
+            }
+        }
+    }
+
+    private static final class ViewportGroup {
+        private final Set<ClientSession> clients = new LinkedHashSet<>();
+        private final List<EntityUpdate> updates = new ArrayList<>();
+
+        private void add(ClientSession client, EntityUpdate position) {
+            clients.add(client);
+            // Updates are routed one at a time, so a repeat can only be the last one added
+            if (updates.isEmpty() || updates.get(updates.size() - 1) != position) {
+                updates.add(position);
+            }
+        }
+    }
+
+    public boolean hasLevelSubscribers(String level) {
+        Set<ClientSession> clients = levelSubscribers.get(level);
+        return clients != null && !clients.isEmpty();
+    }
+
+    /**
+     * Sends one shared frame of absolute positions to the sessions subscribed to a downsampled level.
+     */
+    public void broadcastLevel(String level, List<EntityUpdate> positions) {
+        Set<ClientSession> clients = levelSubscribers.get(level);
+        if (clients != null && !clients.isEmpty()) {
+            SharedFrame frame = frameEncoder.frame(positions);
+            clients.forEach(client -> client.offer(frame));
+        }
+    }
+
+    /**
+     * Sends any other JSON value, encoded once, to the sessions subscribed to a downsampled level.
+     */
+    public void broadcastLevel(String level, Object value) {
+        Set<ClientSession> clients = levelSubscribers.get(level);
+        if (clients != null && !clients.isEmpty()) {
+            SharedFrame frame = frameEncoder.jsonFrame(value);
+            clients.forEach(client -> client.offer(frame));
+        }
+    }
+
+    public int getSessionCount() {
+        return sessions.size();
+    }
+
+    public List<SessionStats> getSessionStats() {
+        return sessions.values().stream().map(ClientSession::getStats).toList();
+    }
 }
@@ -0,0 +1,18 @@
+package com.badnetwork.traffic2ui.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Number of entities in one grid cell, located at the cell's centre.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CellCount {
+
+    private double lat;
+    private double lon;
+    private int count;
+}
@@ -0,0 +1,23 @@
+package com.badnetwork.traffic2ui.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Frame of the clustered downsample level: {@code {"type":"cells","cellSizeDeg":1.0,"timestamp":...,"cells":[...]}}.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CellCountFrame {
+
+    public static final String TYPE = "cells";
+
+    private String type;
+    private double cellSizeDeg;
+    private long timestamp;
+    private List<CellCount> cells;
+}
@@ -0,0 +1,23 @@
+package com.badnetwork.traffic2ui.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Control message sent by a client over the traffic socket, e.g.
+ * {@code {"type":"subscribe","bbox":{"south":39.9,"west":-74.1,"north":40.1,"east":-73.9}}}.
+ * A subscribe without bbox receives every entity. A subscribe with a {@code resolution} naming a
+ * downsampled level (e.g. {@code "1hz"} or {@code "cells"}) receives that level instead of the full stream.
+ */
+@Data
+@NoArgsConstructor
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class ClientMessage {
+
+    public static final String SUBSCRIBE = "subscribe";
+
+    private String type;
+    private Viewport bbox;
+    private String resolution;
+}
@@ -0,0 +1,74 @@
+package com.badnetwork.traffic2ui.model;
+
+import com.fasterxml.jackson.annotation.JsonAlias;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Position update for one entity as sent to the UI. Carries an absolute position when lat/lon
+ * are set (delta-feed newEntity events, or absolute feeds such as traffic-original), otherwise
+ * a delta relative to the previous update.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class EntityUpdate {
+
+    private String id;
+    private double deltaLat;
+    private double deltaLong;
+    private long timestamp;
+    private boolean newEntity;
+    private Double lat;
+    @JsonAlias("long")
+    private Double lon;
+    /**
+     * With server-side reconstruction, the position obtained by naively summing deltas as they arrive,
+     * next to the corrected lat/lon, so clean and degraded tracks can be drawn side by side.
+     */
+    private Double rawLat;
+    private Double rawLon;
+
+    @JsonIgnore
+    public boolean isAbsolute() {
+        return lat != null && lon != null;
+    }
+
+    /**
+     * Folds a later update for the same entity into this one: a later absolute position replaces
+     * this update, a later delta is added on top of it.
+     *
+     * @return this, for use with {@code Map.merge}
+     */
+    public EntityUpdate merge(EntityUpdate later) {
+        if (later.isAbsolute()) {
+            newEntity = newEntity || later.newEntity;
+            lat = later.lat;
+            lon = later.lon;
+            deltaLat = 0;
+            deltaLong = 0;
+        } else if (isAbsolute()) {
+            lat += later.deltaLat;
+            lon += later.deltaLong;
+        } else {
+            deltaLat += later.deltaLat;
+            deltaLong += later.deltaLong;
+        }
+        if (later.rawLat != null) {
+            rawLat = later.rawLat;
+            rawLon = later.rawLon;
+        }
+        timestamp = Math.max(timestamp, later.timestamp);
+        return this;
+    }
+
+    public EntityUpdate copy() {
+        return new EntityUpdate(id, deltaLat, deltaLong, timestamp, newEntity, lat, lon, rawLat, rawLon);
+    }
+}
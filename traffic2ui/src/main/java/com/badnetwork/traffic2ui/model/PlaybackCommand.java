@@ -0,0 +1,25 @@
+package com.badnetwork.traffic2ui.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Control message sent by a client over the playback socket:
+ * {@code {"type":"seek","from":1735689600000}}, {@code {"type":"speed","speed":4}},
+ * {@code {"type":"pause"}} or {@code {"type":"resume"}}.
+ */
+@Data
+@NoArgsConstructor
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class PlaybackCommand {
+
+    public static final String SEEK = "seek";
+    public static final String SPEED = "speed";
+    public static final String PAUSE = "pause";
+    public static final String RESUME = "resume";
+
+    private String type;
+    private Long from;
+    private Double speed;
+}
@@ -0,0 +1,23 @@
+package com.badnetwork.traffic2ui.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReconstructionStats {
+
+    private boolean enabled;
+    private int entities;
+    private long applied;
+    /** Deltas that arrived after a later delta of the same entity had already been released. */
+    private long late;
+    /** Deltas already covered by a resync, and so discarded. */
+    private long superseded;
+    private long gaps;
+    private long resyncs;
+    /** Largest drift from the original track seen before a correction, in degrees. */
+    private double maxDriftDeg;
+}
@@ -0,0 +1,17 @@
+package com.badnetwork.traffic2ui.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RecordingInfo {
+
+    private String topic;
+    private long fromTimestamp;
+    private long toTimestamp;
+    private int segments;
+    private long bytes;
+}
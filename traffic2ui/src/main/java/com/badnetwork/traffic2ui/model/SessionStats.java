@@ -0,0 +1,23 @@
+package com.badnetwork.traffic2ui.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SessionStats {
+
+    private String id;
+    private int queued;
+    private long sent;
+    private long dropped;
+    private long coalesced;
+    /** Age of the oldest message still waiting to be written to this client. */
+    private long lagMs;
+    /** Minimum interval between this client's frames; 0 when it receives every tick. */
+    private long intervalMs;
+    /** Frames written to this client per second over the last evaluation window. */
+    private double drainRate;
+}
@@ -0,0 +1,26 @@
+package com.badnetwork.traffic2ui.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Geographic bounding box in degrees. A box with west &gt; east crosses the antimeridian.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class Viewport {
+
+    private double south;
+    private double west;
+    private double north;
+    private double east;
+
+    public boolean contains(double lat, double lon) {
+        if (lat < south || lat > north) {
+            return false;
+        }
+        return west <= east ? lon >= west && lon <= east : lon >= west || lon <= east;
+    }
+}
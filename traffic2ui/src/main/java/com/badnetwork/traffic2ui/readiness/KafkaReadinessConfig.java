@@ -0,0 +1,39 @@
+package com.badnetwork.traffic2ui.readiness;
+
+import com.badnetwork.readiness.KafkaReadiness;
+import com.badnetwork.traffic2ui.config.Traffic2UIProperties;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.core.KafkaAdmin;
+
+/**
+ * The service is ready once it is actually consuming: the broker answers and every running listener (the
+ * delta feed, plus the original feed and recorder when enabled) has been assigned partitions. Reported as
+ * the kafkaReadiness health contributor of the readiness group, and through traffic2ui.readiness.file when set.
+ */
+@Configuration
+@ConditionalOnProperty(name = "traffic2ui.readiness.enabled", havingValue = "true", matchIfMissing = true)
+public class KafkaReadinessConfig {
+
+    @Bean
+    public KafkaReadiness kafkaReadiness(Traffic2UIProperties properties, KafkaAdmin kafkaAdmin,
+                                         KafkaListenerEndpointRegistry listenerRegistry) {
+        Traffic2UIProperties.ReadinessConfig readiness = properties.getReadiness();
+        return new KafkaReadiness(kafkaAdmin, readiness.getCheckIntervalMs(), readiness.getFile(),
+                "every running listener has partitions assigned", KafkaReadiness.listenersAssigned(listenerRegistry));
+    }
+
+    /**
+     * Contributed as kafkaReadiness; the HealthIndicator suffix is dropped from the name.
+     */
+    @Bean
+    public HealthIndicator kafkaReadinessHealthIndicator(KafkaReadiness kafkaReadiness) {
+        return () -> (kafkaReadiness.isReady() ? Health.up() : Health.outOfService())
+                .withDetail("reason", kafkaReadiness.getReason())
+                .build();
+    }
+}
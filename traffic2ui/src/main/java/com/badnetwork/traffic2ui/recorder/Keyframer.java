@@ -0,0 +1,151 @@
+package com.badnetwork.traffic2ui.recorder;
+
+import com.badnetwork.traffic2ui.model.EntityUpdate;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Folds one recorded topic into every entity's absolute position and, every {@code intervalMs} of recorded
+ * time, appends them all to a companion keyframe log as one JSON array of absolute updates. A delta stream
+ * carries positions only on {@code newEntity} events, so playback seeks start from the last keyframe at or
+ * before the target and replay the topic's records from the keyframe's timestamp on.
+ * Single writer, like the logs it writes.
+ */
+@Slf4j
+final class Keyframer {
+
+    private final SegmentedLog records;
+    private final SegmentedLog keyframes;
+    private final ObjectMapper objectMapper;
+    private final long intervalMs;
+    private final long expireAfterMs;
+    private final Map<String, Position> positions = new HashMap<>();
+    private long lastTimestamp;
+    private long lastKeyframe;
+
+    Keyframer(SegmentedLog records, SegmentedLog keyframes, ObjectMapper objectMapper, long intervalMs,
+              long expireAfterMs) {
+        this.records = records;
+        this.keyframes = keyframes;
+        this.objectMapper = objectMapper;
+        this.intervalMs = intervalMs;
+        this.expireAfterMs = expireAfterMs;
+        recover();
+    }
+
+    SegmentedLog keyframes() {
+        return keyframes;
+    }
+
+    /**
+     * Must be called with each record just before it is appended to the topic's log.
+     */
+    void beforeAppend(long timestamp, byte[] message) throws IOException {
+        // Only between two distinct timestamps: every record folded so far is then older than the keyframe,
+        // and every later one at least as new, so replaying from the keyframe's timestamp applies each once
+        if (timestamp > lastTimestamp && timestamp - lastKeyframe >= intervalMs) {
+            writeKeyframe(timestamp);
+        }
+        lastTimestamp = Math.max(lastTimestamp, timestamp);
+        fold(lastTimestamp, message, 0, message.length);
+    }
+
+    private void writeKeyframe(long timestamp) throws IOException {
+        lastKeyframe = timestamp;
+        if (expireAfterMs > 0) {
+            positions.values().removeIf(position -> timestamp - position.recordedMs > expireAfterMs);
+        }
+        if (positions.isEmpty()) {
+            return;
+        }
+        List<EntityUpdate> updates = new ArrayList<>(positions.size());
+        positions.forEach((id, position) -> updates.add(
+                new EntityUpdate(id, 0, 0, position.timestamp, true, position.lat, position.lon, null, null)));
+        keyframes.append(timestamp, objectMapper.writeValueAsBytes(updates));
+    }
+
+    private void fold(long recordedMs, byte[] message, int offset, int length) {
+        try {
+            fold(recordedMs, objectMapper.readValue(message, offset, length, EntityUpdate.class));
+        } catch (IOException ignored) {
+            // Not an entity update; nothing to keep
+        }
+    }
+
+    private void fold(long recordedMs, EntityUpdate update) {
+        if (update.getId() == null) {
+            return;
+        }
+        Position position = positions.get(update.getId());
+        if (update.isAbsolute()) {
+            if (position == null) {
+                position = new Position();
+                positions.put(update.getId(), position);
+            }
+            position.lat = update.getLat();
+            position.lon = update.getLon();
+        } else if (position != null) {
+            position.lat += update.getDeltaLat();
+            position.lon += update.getDeltaLong();
+        } else {
+            // Same as a client: a delta for an entity without a position yet has nothing to apply to
+            return;
+        }
+        position.timestamp = Math.max(position.timestamp, update.getTimestamp());
+        position.recordedMs = recordedMs;
+    }
+
+    /**
+     * Rebuilds the positions after a restart from the last keyframe and the records after it. A recording
+     * without keyframes is not replayed; its positions fill in again as entities are introduced.
+     */
+    private void recover() {
+        lastTimestamp = records.lastTimestamp();
+        ByteBuffer keyframe = keyframes.floorRecord(Long.MAX_VALUE);
+        if (keyframe == null) {
+            return;
+        }
+        keyframe.order(ByteOrder.LITTLE_ENDIAN);
+        lastKeyframe = keyframe.getLong(0);
+        try {
+            byte[] payload = new byte[keyframe.getInt(8)];
+            keyframe.get(LogSegment.HEADER_BYTES, payload);
+            for (EntityUpdate update : objectMapper.readValue(payload, EntityUpdate[].class)) {
+                fold(lastKeyframe, update);
+            }
+        } catch (IOException e) {
+            log.warn("Ignoring unreadable keyframe of {}: {}", records.getName(), e.getMessage());
+            positions.clear();
+            return;
+        }
+
+        SegmentedLog.Cursor cursor = records.seek(lastKeyframe);
+        ByteBuffer run;
+        while ((run = cursor.read(Long.MAX_VALUE, 1 << 20)) != null) {
+            run.order(ByteOrder.LITTLE_ENDIAN);
+            byte[] bytes = new byte[run.remaining()];
+            run.get(0, bytes);
+            for (int offset = 0; offset + LogSegment.HEADER_BYTES <= bytes.length; ) {
+                int length = run.getInt(offset + 8);
+                fold(run.getLong(offset), bytes, offset + LogSegment.HEADER_BYTES, length);
+                offset += LogSegment.HEADER_BYTES + length;
+            }
+        }
+        log.info("Recovered {} positions of {} from keyframe {}", positions.size(), records.getName(), lastKeyframe);
+    }
+
+    private static final class Position {
+        double lat;
+        double lon;
+        long timestamp;
+        long recordedMs;
+    }
+}
@@ -0,0 +1,184 @@
+package com.badnetwork.traffic2ui.recorder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * One memory-mapped, preallocated log file of records {@code i64 timestamp, i32 length, length bytes}
+ * (little-endian), with a sparse in-memory index of (timestamp, offset) every {@code indexIntervalBytes}.
+ * Appended by a single writer; read concurrently, up to the published {@link #size()}.
+ */
+final class LogSegment {
+
+    static final int HEADER_BYTES = 12;
+    static final String SUFFIX = ".log";
+
+    private final Path path;
+    private final MappedByteBuffer buffer;
+    private final long baseTimestamp;
+    private final long sequence;
+    private final int indexIntervalBytes;
+
+    // Written before size is published, so readers that see a size also see every record below it
+    private volatile int size;
+    private volatile long lastTimestamp;
+    private volatile Index index = new Index(new long[64], new int[64]);
+    private volatile int indexSize;
+    private int lastIndexedOffset = Integer.MIN_VALUE;
+
+    private LogSegment(Path path, MappedByteBuffer buffer, long baseTimestamp, long sequence, int indexIntervalBytes) {
+        this.path = path;
+        this.buffer = buffer;
+        this.baseTimestamp = baseTimestamp;
+        this.sequence = sequence;
+        this.indexIntervalBytes = indexIntervalBytes;
+        this.lastTimestamp = baseTimestamp;
+    }
+
+    /**
+     * Files are named {@code <baseTimestamp>-<sequence>.log}, so names sort in log order even when
+     * several segments fill up within the same millisecond.
+     */
+    static LogSegment create(Path directory, long baseTimestamp, long sequence, int capacity,
+                             int indexIntervalBytes) throws IOException {
+        Path path = directory.resolve(String.format("%020d-%010d%s", baseTimestamp, sequence, SUFFIX));
+        return new LogSegment(path, map(path, capacity), baseTimestamp, sequence, indexIntervalBytes);
+    }
+
+    /**
+     * Maps an existing segment and rebuilds its size and index by scanning its records.
+     */
+    static LogSegment open(Path path, int indexIntervalBytes) throws IOException {
+        String name = path.getFileName().toString();
+        String[] parts = name.substring(0, name.length() - SUFFIX.length()).split("-");
+        LogSegment segment = new LogSegment(path, map(path, (int) Files.size(path)),
+                Long.parseLong(parts[0]), Long.parseLong(parts[1]), indexIntervalBytes);
+        segment.recover();
+        return segment;
+    }
+
+    private static MappedByteBuffer map(Path path, int capacity) throws IOException {
+        try (FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // The mapping stays valid after the channel is closed
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+            mapped.order(ByteOrder.LITTLE_ENDIAN);
+            return mapped;
+        }
+    }
+
+    private void recover() {
+        int offset = 0;
+        while (offset + HEADER_BYTES <= buffer.capacity()) {
+            int length = buffer.getInt(offset + 8);
+            if (length <= 0 || offset + HEADER_BYTES + length > buffer.capacity()) {
+                break;
+            }
+            long timestamp = buffer.getLong(offset);
+            indexIfDue(timestamp, offset);
+            lastTimestamp = timestamp;
+            offset += HEADER_BYTES + length;
+        }
+        size = offset;
+    }
+
+    /**
+     * @return false if the record does not fit; the segment is then full
+     */
+    boolean append(long timestamp, byte[] payload) {
+        int offset = size;
+        if (offset + HEADER_BYTES + payload.length > buffer.capacity()) {
+            return false;
+        }
+        buffer.putLong(offset, timestamp);
+        buffer.put(offset + HEADER_BYTES, payload);
+        buffer.putInt(offset + 8, payload.length);
+        indexIfDue(timestamp, offset);
+        lastTimestamp = timestamp;
+        size = offset + HEADER_BYTES + payload.length;
+        return true;
+    }
+
+    private void indexIfDue(long timestamp, int offset) {
+        if (offset - lastIndexedOffset < indexIntervalBytes) {
+            return;
+        }
+        Index current = index;
+        int n = indexSize;
+        if (n == current.timestamps.length) {
+            current = new Index(Arrays.copyOf(current.timestamps, n * 2), Arrays.copyOf(current.offsets, n * 2));
+            index = current;
+        }
+        current.timestamps[n] = timestamp;
+        current.offsets[n] = offset;
+        indexSize = n + 1;
+        lastIndexedOffset = offset;
+    }
+
+    /**
+     * @return the offset of an indexed record at or before the first record with a timestamp of at least
+     * {@code timestamp}; a binary search over the sparse index, so callers scan at most one interval forward
+     */
+    int floorOffset(long timestamp) {
+        int n = indexSize;
+        Index current = index;
+        int low = 0;
+        int high = n - 1;
+        int found = 0;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (current.timestamps[mid] < timestamp) {
+                found = current.offsets[mid];
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return found;
+    }
+
+    long timestampAt(int offset) {
+        return buffer.getLong(offset);
+    }
+
+    int recordBytesAt(int offset) {
+        return HEADER_BYTES + buffer.getInt(offset + 8);
+    }
+
+    /**
+     * @return a read-only view of the bytes in [from, to), sharing the mapped memory
+     */
+    ByteBuffer slice(int from, int to) {
+        return buffer.slice(from, to - from).asReadOnlyBuffer();
+    }
+
+    int size() {
+        return size;
+    }
+
+    long baseTimestamp() {
+        return baseTimestamp;
+    }
+
+    long sequence() {
+        return sequence;
+    }
+
+    long lastTimestamp() {
+        return lastTimestamp;
+    }
+
+    Path path() {
+        return path;
+    }
+
+    private record Index(long[] timestamps, int[] offsets) {
+    }
+}
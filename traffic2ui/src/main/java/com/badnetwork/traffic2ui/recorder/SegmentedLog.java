@@ -0,0 +1,240 @@
+package com.badnetwork.traffic2ui.recorder;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Stream;
+
+/**
+ * An append-only, time-ordered record log split into fixed-size memory-mapped {@link LogSegment}s.
+ * Seeking is a binary search over segment base timestamps and then over one segment's sparse index;
+ * reads hand out views of the mapped segments without copying.
+ */
+@Slf4j
+public class SegmentedLog {
+
+    private final String name;
+    private final Path directory;
+    private final int segmentBytes;
+    private final int indexIntervalBytes;
+    private final int retainedSegments;
+    // Rolled once per segment, read on every seek, so copy-on-write costs nothing here
+    private final List<LogSegment> segments = new CopyOnWriteArrayList<>();
+    private long lastTimestamp = Long.MIN_VALUE;
+
+    public SegmentedLog(String name, Path directory, int segmentBytes, int indexIntervalBytes, int retainedSegments) {
+        this.name = name;
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.indexIntervalBytes = indexIntervalBytes;
+        this.retainedSegments = Math.max(1, retainedSegments);
+        try {
+            Files.createDirectories(directory);
+            try (Stream<Path> files = Files.list(directory)) {
+                for (Path path : files.filter(p -> p.toString().endsWith(LogSegment.SUFFIX)).sorted().toList()) {
+                    segments.add(LogSegment.open(path, indexIntervalBytes));
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open recording " + directory, e);
+        }
+        if (!segments.isEmpty()) {
+            lastTimestamp = segments.get(segments.size() - 1).lastTimestamp();
+        }
+        log.info("Recording {} in {} ({} existing segment(s))", name, directory, segments.size());
+    }
+
+    /**
+     * Appends a record; timestamps are clamped to be non-decreasing so the log stays seekable.
+     * Single writer only.
+     */
+    public void append(long timestamp, byte[] payload) throws IOException {
+        if (payload.length == 0 || payload.length > segmentBytes - LogSegment.HEADER_BYTES) {
+            return;
+        }
+        lastTimestamp = Math.max(lastTimestamp, timestamp);
+        LogSegment active = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+        if (active == null || !active.append(lastTimestamp, payload)) {
+            long sequence = active == null ? 0 : active.sequence() + 1;
+            active = LogSegment.create(directory, lastTimestamp, sequence, segmentBytes, indexIntervalBytes);
+            segments.add(active);
+            active.append(lastTimestamp, payload);
+            enforceRetention();
+        }
+    }
+
+    private void enforceRetention() throws IOException {
+        while (segments.size() > retainedSegments) {
+            LogSegment oldest = segments.remove(0);
+            // Cursors still reading it keep a valid mapping until they move on
+            Files.deleteIfExists(oldest.path());
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long firstTimestamp() {
+        return segments.isEmpty() ? 0 : segments.get(0).baseTimestamp();
+    }
+
+    public long lastTimestamp() {
+        return segments.isEmpty() ? 0 : segments.get(segments.size() - 1).lastTimestamp();
+    }
+
+    public int segmentCount() {
+        return segments.size();
+    }
+
+    public long sizeBytes() {
+        return segments.stream().mapToLong(LogSegment::size).sum();
+    }
+
+    /**
+     * @return a cursor at the first record with a timestamp of at least {@code timestamp}
+     */
+    public Cursor seek(long timestamp) {
+        List<LogSegment> snapshot = List.copyOf(segments);
+        if (snapshot.isEmpty()) {
+            return new Cursor(null, 0);
+        }
+        LogSegment segment = floorSegment(snapshot, timestamp);
+        Cursor cursor = new Cursor(segment, segment.floorOffset(timestamp));
+        cursor.skipBefore(timestamp);
+        return cursor;
+    }
+
+    /**
+     * @return a read-only view of the last record with a timestamp of at most {@code timestamp}, header
+     * included, or null if there is none
+     */
+    public ByteBuffer floorRecord(long timestamp) {
+        List<LogSegment> snapshot = List.copyOf(segments);
+        if (snapshot.isEmpty()) {
+            return null;
+        }
+        // A segment's base timestamp is that of its first record, so the floor record is in the floor segment
+        LogSegment segment = floorSegment(snapshot, timestamp);
+        int size = segment.size();
+        int found = -1;
+        for (int offset = segment.floorOffset(timestamp); offset < size && segment.timestampAt(offset) <= timestamp;
+             offset += segment.recordBytesAt(offset)) {
+            found = offset;
+        }
+        return found < 0 ? null : segment.slice(found, found + segment.recordBytesAt(found));
+    }
+
+    /**
+     * @return the last segment with a base timestamp of at most {@code timestamp}, or the first segment
+     */
+    private static LogSegment floorSegment(List<LogSegment> snapshot, long timestamp) {
+        int low = 0;
+        int high = snapshot.size() - 1;
+        int found = 0;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (snapshot.get(mid).baseTimestamp() <= timestamp) {
+                found = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return snapshot.get(found);
+    }
+
+    private LogSegment nextSegment(LogSegment segment) {
+        int index = segments.indexOf(segment);
+        if (index >= 0 && index + 1 < segments.size()) {
+            return segments.get(index + 1);
+        }
+        if (index < 0 && !segments.isEmpty()) {
+            // Segment was deleted by retention while being read; continue from the oldest retained
+            return segments.get(0);
+        }
+        return null;
+    }
+
+    /**
+     * A read position. Not thread-safe; each reader owns its cursor.
+     */
+    public final class Cursor {
+
+        private LogSegment segment;
+        private int offset;
+
+        private Cursor(LogSegment segment, int offset) {
+            this.segment = segment;
+            this.offset = offset;
+        }
+
+        private void skipBefore(long timestamp) {
+            while (advanceSegmentIfDone() && segment.timestampAt(offset) < timestamp) {
+                offset += segment.recordBytesAt(offset);
+            }
+        }
+
+        /**
+         * @return true if a record is available at the cursor, moving on to the next segment if this one is done
+         */
+        private boolean advanceSegmentIfDone() {
+            if (segment == null) {
+                segment = segments.isEmpty() ? null : segments.get(0);
+                offset = 0;
+                if (segment == null) {
+                    return false;
+                }
+            }
+            while (offset >= segment.size()) {
+                LogSegment next = nextSegment(segment);
+                if (next == null) {
+                    return false;
+                }
+                segment = next;
+                offset = 0;
+            }
+            return true;
+        }
+
+        /**
+         * @return the timestamp of the next record, or null at the end of the log
+         */
+        public Long peekTimestamp() {
+            return advanceSegmentIfDone() ? segment.timestampAt(offset) : null;
+        }
+
+        /**
+         * Reads whole records with timestamps before {@code until}, up to {@code maxBytes} (but at least one
+         * record if any is due), from a single segment.
+         *
+         * @return a read-only view of consecutive records in the mapped segment, or null if none is due
+         */
+        public ByteBuffer read(long until, int maxBytes) {
+            if (!advanceSegmentIfDone()) {
+                return null;
+            }
+            int from = offset;
+            int end = offset;
+            int size = segment.size();
+            while (end < size && segment.timestampAt(end) < until) {
+                int recordBytes = segment.recordBytesAt(end);
+                if (end > from && end + recordBytes - from > maxBytes) {
+                    break;
+                }
+                end += recordBytes;
+            }
+            if (end == from) {
+                return null;
+            }
+            offset = end;
+            return segment.slice(from, end);
+        }
+    }
+}
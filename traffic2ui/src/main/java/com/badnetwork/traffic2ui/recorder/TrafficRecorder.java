@@ -0,0 +1,104 @@
+package com.badnetwork.traffic2ui.recorder;
+
+import com.badnetwork.traffic2ui.config.Traffic2UIProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Appends every record of the recorded topics to one {@link SegmentedLog} per topic, keyed by the
+ * record's Kafka timestamp, with a {@link Keyframer} per topic writing the absolute positions playback seeks
+ * start from. The listener's single consumer thread is the logs' only writer.
+ */
+@Slf4j
+@Service
+public class TrafficRecorder {
+
+    private final Traffic2UIProperties.RecorderConfig config;
+    private final Map<String, SegmentedLog> logs = new LinkedHashMap<>();
+    private final Map<String, Keyframer> keyframers = new LinkedHashMap<>();
+
+    public TrafficRecorder(Traffic2UIProperties properties, ObjectMapper objectMapper) {
+        this.config = properties.getRecorder();
+        if (config.isEnabled()) {
+            Path directory = Path.of(config.getDirectory());
+            for (String topic : config.getTopics()) {
+                SegmentedLog recording = new SegmentedLog(topic, directory.resolve(topic), config.getSegmentBytes(),
+                        config.getIndexIntervalBytes(), config.getRetainedSegments());
+                logs.put(topic, recording);
+                if (config.getKeyframeIntervalMs() > 0) {
+                    SegmentedLog keyframes = new SegmentedLog(topic + " keyframes",
+                            directory.resolve(topic).resolve("keyframes"), config.getKeyframeSegmentBytes(),
+                            config.getIndexIntervalBytes(), config.getRetainedSegments());
+                    keyframers.put(topic, new Keyframer(recording, keyframes, objectMapper,
+                            config.getKeyframeIntervalMs(), properties.getState().getExpireAfterMs()));
+                }
+            }
+        }
+    }
+
+    public String[] getTopics() {
+        return config.getTopics().toArray(new String[0]);
+    }
+
+    @KafkaListener(
+            id = "traffic-recorder",
+            topics = "#{__listener.topics}",
+            groupId = "${traffic2ui.kafka.consumer-group-id}-recorder",
+            autoStartup = "#{${traffic2ui.recorder.enabled} and ${spring.kafka.listener.auto-startup:true}}"
+    )
+    public void record(ConsumerRecord<String, String> record) {
+        record(record.topic(), record.timestamp(), record.value());
+    }
+
+    /**
+     * Must only be called from one thread per topic.
+     */
+    public void record(String topic, long timestamp, String message) {
+        SegmentedLog recording = logs.get(topic);
+        if (recording == null || message == null) {
+            return;
+        }
+        try {
+            byte[] payload = message.getBytes(StandardCharsets.UTF_8);
+            Keyframer keyframer = keyframers.get(topic);
+            if (keyframer != null) {
+                keyframer.beforeAppend(timestamp, payload);
+            }
+            recording.append(timestamp, payload);
+        } catch (IOException e) {
+            log.error("Failed to record {} message: {}", topic, e.getMessage());
+        }
+    }
+
+    public boolean isEnabled() {
+        return config.isEnabled();
+    }
+
+    /**
+     * @return the topic's log, or null if it is not recorded
+     */
+    public SegmentedLog getLog(String topic) {
+        return logs.get(topic);
+    }
+
+    /**
+     * @return the topic's keyframe log, or null if it has none
+     */
+    public SegmentedLog getKeyframes(String topic) {
+        Keyframer keyframer = keyframers.get(topic);
+        return keyframer == null ? null : keyframer.keyframes();
+    }
+
+    public Map<String, SegmentedLog> getLogs() {
+        return logs;
+    }
+}
@@ -0,0 +1,307 @@
+package com.badnetwork.traffic2ui.service;
+
+import com.badnetwork.traffic2ui.config.Traffic2UIProperties;
+import com.badnetwork.traffic2ui.model.EntityUpdate;
+import com.badnetwork.traffic2ui.model.ReconstructionStats;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Rebuilds absolute positions from the (possibly chaotic) delta feed on the server. Deltas are held for a
+ * bounded reorder window and applied in timestamp order; gaps in an entity's update cadence, or drift from
+ * the original feed at the same timestamp, resync the entity to its original position. Every applied
+ * delta is forwarded to the {@link TrafficBatcher} as a corrected absolute position.
+ */
+@Slf4j
+@Service
+public class DeltaReconstructor {
+
+    private static final long RELEASE_INTERVAL_MS = 10;
+    private static final long EVICT_INTERVAL_MS = 1000;
+
+    private final Traffic2UIProperties.ReconstructionConfig config;
+    private final long expireAfterMs;
+    private final TrafficBatcher trafficBatcher;
+    private final Map<String, Track> tracks = new ConcurrentHashMap<>();
+    private ScheduledExecutorService scheduler;
+    private long lastEvictMs = System.currentTimeMillis();
+
+    private final AtomicLong applied = new AtomicLong();
+    private final AtomicLong late = new AtomicLong();
+    private final AtomicLong superseded = new AtomicLong();
+    private final AtomicLong gaps = new AtomicLong();
+    private final AtomicLong resyncs = new AtomicLong();
+    private volatile double maxDriftDeg = 0;
+
+    public DeltaReconstructor(Traffic2UIProperties properties, TrafficBatcher trafficBatcher) {
+        this.config = properties.getReconstruction();
+        this.expireAfterMs = properties.getState().getExpireAfterMs();
+        this.trafficBatcher = trafficBatcher;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!config.isEnabled()) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+        scheduler.scheduleAtFixedRate(this::releaseDue, RELEASE_INTERVAL_MS, RELEASE_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        log.info("Reconstructing positions server-side: reorder window {}ms, resync from {}",
+                config.getReorderWindowMs(), config.getOriginalTopic());
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    public boolean isEnabled() {
+        return config.isEnabled();
+    }
+
+    /**
+     * Buffers a delta-feed update until its reorder window has passed.
+     */
+    public void addDelta(EntityUpdate update) {
+        long now = System.currentTimeMillis();
+        Track track = touch(update.getId(), now);
+        EntityUpdate overflow = null;
+        synchronized (track) {
+            track.pending.add(new Pending(update, now));
+            if (track.pending.size() > config.getMaxBufferedPerEntity()) {
+                overflow = apply(update.getId(), track, track.pending.poll().update);
+            }
+        }
+        if (overflow != null) {
+            trafficBatcher.add(overflow);
+        }
+    }
+
+    /**
+     * Records an original (ground truth) position, seeding entities the delta feed has not introduced yet
+     * and resyncing entities waiting on one.
+     */
+    public void addOriginal(EntityUpdate original) {
+        if (!original.isAbsolute()) {
+            return;
+        }
+        Track track = touch(original.getId(), System.currentTimeMillis());
+        EntityUpdate corrected = null;
+        synchronized (track) {
+            track.truths.addLast(original);
+            if (track.truths.size() > config.getTruthHistory()) {
+                track.truths.pollFirst();
+            }
+            if (!track.known || (track.needsResync && original.getTimestamp() >= track.lastTimestamp)) {
+                corrected = resync(original.getId(), track, original);
+            } else if (original.getTimestamp() == track.lastTimestamp) {
+                // The delta for this timestamp was applied before its original arrived
+                corrected = correctDrift(original.getId(), track, original);
+            }
+        }
+        if (corrected != null) {
+            trafficBatcher.add(corrected);
+        }
+    }
+
+    private void releaseDue() {
+        try {
+            long now = System.currentTimeMillis();
+            long releaseBefore = now - config.getReorderWindowMs();
+            List<EntityUpdate> released = new ArrayList<>();
+            tracks.forEach((id, track) -> {
+                synchronized (track) {
+                    while (!track.pending.isEmpty() && track.pending.peek().arrivedMs <= releaseBefore) {
+                        EntityUpdate corrected = apply(id, track, track.pending.poll().update);
+                        if (corrected != null) {
+                            released.add(corrected);
+                        }
+                    }
+                }
+            });
+            released.forEach(trafficBatcher::add);
+            evictExpired(now);
+        } catch (Exception e) {
+            log.error("Error releasing reconstructed updates: {}", e.getMessage(), e);
+        }
+    }
+
+    private void evictExpired(long now) {
+        if (expireAfterMs <= 0 || now - lastEvictMs < EVICT_INTERVAL_MS) {
+            return;
+        }
+        lastEvictMs = now;
+        // Checked and removed atomically per key against touch(), so a track being updated is never evicted
+        for (String id : tracks.keySet()) {
+            tracks.computeIfPresent(id, (key, track) -> now - track.touchedMs > expireAfterMs ? null : track);
+        }
+    }
+
+    /**
+     * @return the entity's track, created if needed, marked as used at the given time
+     */
+    private Track touch(String id, long now) {
+        return tracks.compute(id, (key, track) -> {
+            Track touched = track != null ? track : new Track();
+            touched.touchedMs = Math.max(touched.touchedMs, now);
+            return touched;
+        });
+    }
+
+    /**
+     * @return the corrected absolute position after the update, or null if it was discarded
+     */
+    private EntityUpdate apply(String id, Track track, EntityUpdate update) {
+        long timestamp = update.getTimestamp();
+        if (timestamp <= track.resyncedThrough) {
+            superseded.incrementAndGet();
+            return null;
+        }
+
+        if (update.isAbsolute()) {
+            track.lat = update.getLat();
+            track.lon = update.getLon();
+            track.rawLat = update.getLat();
+            track.rawLon = update.getLon();
+            track.known = true;
+        } else if (track.known) {
+            track.lat += update.getDeltaLat();
+            track.lon += update.getDeltaLong();
+            track.rawLat += update.getDeltaLat();
+            track.rawLon += update.getDeltaLong();
+        } else {
+            // No position yet to apply the delta to; wait for the original feed
+            track.needsResync = true;
+            return null;
+        }
+        applied.incrementAndGet();
+
+        if (timestamp < track.lastTimestamp) {
+            late.incrementAndGet();
+        } else {
+            detectGap(track, timestamp);
+            track.lastTimestamp = timestamp;
+        }
+
+        EntityUpdate truth = track.truthAt(timestamp);
+        if (track.needsResync) {
+            EntityUpdate latest = track.truths.peekLast();
+            if (latest != null && latest.getTimestamp() >= track.lastTimestamp) {
+                return resync(id, track, latest);
+            }
+        } else if (truth != null) {
+            EntityUpdate corrected = correctDrift(id, track, truth);
+            if (corrected != null) {
+                return corrected;
+            }
+        }
+        return track.toUpdate(id, Math.max(timestamp, track.lastTimestamp), update.isNewEntity());
+    }
+
+    private void detectGap(Track track, long timestamp) {
+        if (track.lastTimestamp > 0) {
+            long interval = timestamp - track.lastTimestamp;
+            if (track.typicalIntervalMs > 0 && interval > track.typicalIntervalMs * config.getGapFactor()) {
+                gaps.incrementAndGet();
+                track.needsResync = true;
+            }
+            // Smoothed, so one gap barely moves the expected cadence
+            track.typicalIntervalMs = track.typicalIntervalMs == 0
+                    ? interval
+                    : track.typicalIntervalMs * 0.9 + interval * 0.1;
+        }
+    }
+
+    /**
+     * @return the corrected position if the track drifted past the threshold from the truth, else null
+     */
+    private EntityUpdate correctDrift(String id, Track track, EntityUpdate truth) {
+        double drift = Math.max(Math.abs(track.lat - truth.getLat()), Math.abs(track.lon - truth.getLon()));
+        if (drift <= config.getDriftThresholdDeg()) {
+            return null;
+        }
+        maxDriftDeg = Math.max(maxDriftDeg, drift);
+        return resync(id, track, truth);
+    }
+
+    private EntityUpdate resync(String id, Track track, EntityUpdate truth) {
+        boolean firstPosition = !track.known;
+        track.lat = truth.getLat();
+        track.lon = truth.getLon();
+        if (firstPosition) {
+            track.rawLat = truth.getLat();
+            track.rawLon = truth.getLon();
+        }
+        track.known = true;
+        track.needsResync = false;
+        track.resyncedThrough = truth.getTimestamp();
+        track.lastTimestamp = Math.max(track.lastTimestamp, truth.getTimestamp());
+        resyncs.incrementAndGet();
+        return track.toUpdate(id, track.lastTimestamp, firstPosition);
+    }
+
+    public ReconstructionStats getStats() {
+        return new ReconstructionStats(
+                config.isEnabled(),
+                tracks.size(),
+                applied.get(),
+                late.get(),
+                superseded.get(),
+                gaps.get(),
+                resyncs.get(),
+                maxDriftDeg
+        );
+    }
+
+    private record Pending(EntityUpdate update, long arrivedMs) {
+    }
+
+    private static final class Track {
+        private final PriorityQueue<Pending> pending =
+                new PriorityQueue<>(Comparator.comparingLong(p -> p.update.getTimestamp()));
+        private final ArrayDeque<EntityUpdate> truths = new ArrayDeque<>();
+        private boolean known;
+        private boolean needsResync;
+        private double lat;
+        private double lon;
+        private double rawLat;
+        private double rawLon;
+        private long lastTimestamp;
+        private long resyncedThrough;
+        private double typicalIntervalMs;
+        private volatile long touchedMs;
+
+        private EntityUpdate truthAt(long timestamp) {
+            for (var it = truths.descendingIterator(); it.hasNext(); ) {
+                EntityUpdate truth = it.next();
+                if (truth.getTimestamp() == timestamp) {
+                    return truth;
+                }
+                if (truth.getTimestamp() < timestamp) {
+                    return null;
+                }
+            }
+            return null;
+        }
+
+        private EntityUpdate toUpdate(String id, long timestamp, boolean newEntity) {
+            return new EntityUpdate(id, 0, 0, timestamp, newEntity, lat, lon, rawLat, rawLon);
+        }
+    }
+}
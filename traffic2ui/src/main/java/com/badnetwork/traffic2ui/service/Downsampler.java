@@ -0,0 +1,112 @@
+package com.badnetwork.traffic2ui.service;
+
+import com.badnetwork.traffic2ui.config.Traffic2UIProperties;
+import com.badnetwork.traffic2ui.handler.TrafficWebSocketHandler;
+import com.badnetwork.traffic2ui.model.CellCountFrame;
+import com.badnetwork.traffic2ui.model.EntityUpdate;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Derives reduced-resolution levels from the full stream for zoomed-out and long-term views. Rate levels
+ * remember which entities moved and, once per period, send their latest absolute positions; the cluster
+ * level sends entity counts per coarse grid cell. Clients of a level never receive the full-rate stream.
+ */
+@Slf4j
+@Service
+public class Downsampler {
+
+    private final Traffic2UIProperties.DownsampleConfig config;
+    private final EntityStateStore entityStateStore;
+    private final TrafficWebSocketHandler webSocketHandler;
+    // Per rate level, entities updated since the level last sent
+    private final Map<String, Set<String>> moved = new LinkedHashMap<>();
+    private ScheduledExecutorService scheduler;
+
+    public Downsampler(Traffic2UIProperties properties, EntityStateStore entityStateStore,
+                       TrafficWebSocketHandler webSocketHandler) {
+        this.config = properties.getDownsample();
+        this.entityStateStore = entityStateStore;
+        this.webSocketHandler = webSocketHandler;
+        config.getRatePeriodsMs().keySet().forEach(level -> moved.put(level, ConcurrentHashMap.newKeySet()));
+    }
+
+    @PostConstruct
+    public void start() {
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+        config.getRatePeriodsMs().forEach((level, periodMs) ->
+                scheduler.scheduleAtFixedRate(() -> flushRate(level), periodMs, periodMs, TimeUnit.MILLISECONDS));
+        scheduler.scheduleAtFixedRate(this::flushClusters,
+                config.getClusterPeriodMs(), config.getClusterPeriodMs(), TimeUnit.MILLISECONDS);
+        log.info("Downsampled levels: {} and {} ({} deg cells)",
+                config.getRatePeriodsMs(), config.getClusterLevel(), config.getClusterCellSizeDeg());
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * Notes the entities of an applied batch; called by the {@link TrafficBatcher} under the store lock.
+     */
+    public void onBatch(List<EntityUpdate> batch) {
+        moved.forEach((level, ids) -> {
+            if (webSocketHandler.hasLevelSubscribers(level)) {
+                batch.forEach(update -> ids.add(update.getId()));
+            }
+        });
+    }
+
+    private void flushRate(String level) {
+        try {
+            Set<String> ids = moved.get(level);
+            if (!webSocketHandler.hasLevelSubscribers(level)) {
+                ids.clear();
+                return;
+            }
+            entityStateStore.runExclusive(() -> {
+                List<EntityUpdate> positions = new ArrayList<>(ids.size());
+                for (String id : ids) {
+                    ids.remove(id);
+                    EntityUpdate position = entityStateStore.absolute(id);
+                    if (position != null) {
+                        positions.add(position);
+                    }
+                }
+                if (!positions.isEmpty()) {
+                    webSocketHandler.broadcastLevel(level, positions);
+                }
+            });
+        } catch (Exception e) {
+            log.error("Error sending {} level: {}", level, e.getMessage(), e);
+        }
+    }
+
+    private void flushClusters() {
+        try {
+            if (!webSocketHandler.hasLevelSubscribers(config.getClusterLevel())) {
+                return;
+            }
+            double cellSize = config.getClusterCellSizeDeg();
+            webSocketHandler.broadcastLevel(config.getClusterLevel(), new CellCountFrame(CellCountFrame.TYPE,
+                    cellSize, System.currentTimeMillis(), entityStateStore.countByCell(cellSize)));
+        } catch (Exception e) {
+            log.error("Error sending {} level: {}", config.getClusterLevel(), e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.badnetwork.traffic2ui.service;
+
+import com.badnetwork.traffic2ui.config.Traffic2UIProperties;
+import com.badnetwork.traffic2ui.model.CellCount;
+import com.badnetwork.traffic2ui.model.EntityUpdate;
+import com.badnetwork.traffic2ui.model.Viewport;
+import com.badnetwork.traffic2ui.spatial.GridIndex;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Latest absolute position per entity, rebuilt from the update stream and indexed in a uniform grid.
+ * Updated from a single thread (the batch flush, or the listener when batching is off); read concurrently.
+ */
+@Slf4j
+@Service
+public class EntityStateStore {
+
+    private static final long EVICT_INTERVAL_MS = 1000;
+
+    private final long expireAfterMs;
+    private final Map<String, EntityState> entities = new ConcurrentHashMap<>();
+    private final GridIndex<String> grid;
+    // Held while a batch is applied and broadcast, so snapshots line up exactly with the live stream
+    private final ReentrantLock updateLock = new ReentrantLock();
+    private long lastEvictMs = System.currentTimeMillis();
+    private volatile long evictionCount;
+
+    public EntityStateStore(Traffic2UIProperties properties) {
+        this.expireAfterMs = properties.getState().getExpireAfterMs();
+        this.grid = new GridIndex<>(properties.getViewport().getCellSizeDeg());
+    }
+
+    /**
+     * Runs the action with no batch being applied or broadcast: state read inside it reflects every
+     * update already sent to clients and none that will be sent after.
+     */
+    public void runExclusive(Runnable action) {
+        updateLock.lock();
+        try {
+            action.run();
+        } finally {
+            updateLock.unlock();
+        }
+    }
+
+    /**
+     * Applies the update; deltas for entities without a known absolute position are ignored.
+     */
+    public void apply(EntityUpdate update) {
+        EntityState state = entities.get(update.getId());
+        double lat;
+        double lon;
+        if (update.isAbsolute()) {
+            lat = update.getLat();
+            lon = update.getLon();
+        } else if (state != null) {
+            lat = state.lat + update.getDeltaLat();
+            lon = state.lon + update.getDeltaLong();
+        } else {
+            return;
+        }
+
+        long cell = grid.cellOf(lat, lon);
+        if (state == null) {
+            state = new EntityState();
+            state.cell = cell;
+            entities.put(update.getId(), state);
+            grid.add(cell, update.getId());
+        } else if (state.cell != cell) {
+            grid.remove(state.cell, update.getId());
+            grid.add(cell, update.getId());
+        }
+        state.lat = lat;
+        state.lon = lon;
+        state.timestamp = Math.max(state.timestamp, update.getTimestamp());
+        state.cell = cell;
+        state.lastSeenMs = System.currentTimeMillis();
+
+        evictExpired(state.lastSeenMs);
+    }
+
+    /**
+     * @return the entity's current position as an absolute update, or null if unknown
+     */
+    public EntityUpdate absolute(String id) {
+        EntityState state = entities.get(id);
+        return state == null ? null : state.toUpdate(id);
+    }
+
+    public void forEachIn(Viewport viewport, Consumer<EntityUpdate> visitor) {
+        grid.forEachNear(viewport, id -> {
+            EntityState state = entities.get(id);
+            if (state != null && viewport.contains(state.lat, state.lon)) {
+                visitor.accept(state.toUpdate(id));
+            }
+        });
+    }
+
+    /**
+     * @return the absolute position of every known entity
+     */
+    public List<EntityUpdate> snapshot() {
+        List<EntityUpdate> snapshot = new ArrayList<>(entities.size());
+        entities.forEach((id, state) -> snapshot.add(state.toUpdate(id)));
+        return snapshot;
+    }
+
+    /**
+     * @return the number of entities per cell of a grid of the given cell size, at each cell's centre
+     */
+    public List<CellCount> countByCell(double cellSizeDeg) {
+        Map<Long, int[]> counts = new HashMap<>();
+        entities.values().forEach(state -> {
+            long row = (long) Math.floor((state.lat + 90) / cellSizeDeg);
+            long column = (long) Math.floor((state.lon + 180) / cellSizeDeg);
+            counts.computeIfAbsent(row << 32 | column, key -> new int[1])[0]++;
+        });
+        List<CellCount> cells = new ArrayList<>(counts.size());
+        counts.forEach((key, count) -> cells.add(new CellCount(
+                (key >>> 32) * cellSizeDeg - 90 + cellSizeDeg / 2,
+                (key & 0xFFFFFFFFL) * cellSizeDeg - 180 + cellSizeDeg / 2,
+                count[0])));
+        return cells;
+    }
+
+    public int size() {
+        return entities.size();
+    }
+
+    public boolean contains(String id) {
+        return entities.containsKey(id);
+    }
+
+    /**
+     * @return the number of entities expired so far
+     */
+    public long getEvictionCount() {
+        return evictionCount;
+    }
+
+    private void evictExpired(long now) {
+        if (expireAfterMs <= 0 || now - lastEvictMs < EVICT_INTERVAL_MS) {
+            return;
+        }
+        lastEvictMs = now;
+        entities.entrySet().removeIf(entry -> {
+            boolean expired = now - entry.getValue().lastSeenMs > expireAfterMs;
+            if (expired) {
+                grid.remove(entry.getValue().cell, entry.getKey());
+                evictionCount++;
+            }
+            return expired;
+        });
+    }
+
+    private static final class EntityState {
+        private volatile double lat;
+        private volatile double lon;
+        private volatile long timestamp;
+        private long cell;
+        private long lastSeenMs;
+
+        private EntityUpdate toUpdate(String id) {
+            return new EntityUpdate(id, 0, 0, timestamp, false, lat, lon, null, null);
+        }
+    }
+}
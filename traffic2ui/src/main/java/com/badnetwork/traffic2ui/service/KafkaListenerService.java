@@ -1,6 +1,8 @@
 package com.badnetwork.traffic2ui.service;
 
-import com.badnetwork.traffic2ui.handler.TrafficWebSocketHandler;
+import com.badnetwork.traffic2ui.model.EntityUpdate;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.kafka.annotation.KafkaListener;
@@ -11,7 +13,9 @@ import org.springframework.stereotype.Service;
 @RequiredArgsConstructor
 public class KafkaListenerService {
 
-    private final TrafficWebSocketHandler webSocketHandler;
+    private final TrafficBatcher trafficBatcher;
+    private final DeltaReconstructor deltaReconstructor;
+    private final ObjectMapper objectMapper;
 
     @KafkaListener(
             topics = "${traffic2ui.kafka.topic}",
@@ -19,6 +23,38 @@ public class KafkaListenerService {
     )
     public void listen(String message) {
         log.debug("Received message from Kafka: {}", message);
-        webSocketHandler.broadcast(message);
+        try {
+            EntityUpdate update = objectMapper.readValue(message, EntityUpdate.class);
+            if (update.getId() == null) {
+                log.warn("Ignoring traffic message without id: {}", message);
+                return;
+            }
+            if (deltaReconstructor.isEnabled()) {
+                deltaReconstructor.addDelta(update);
+            } else {
+                trafficBatcher.add(update);
+            }
+        } catch (JsonProcessingException e) {
+            log.warn("Failed to deserialize traffic message: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Ground truth for server-side reconstruction; only started when it is enabled.
+     */
+    @KafkaListener(
+            topics = "${traffic2ui.reconstruction.original-topic}",
+            groupId = "${traffic2ui.kafka.consumer-group-id}-original",
+            autoStartup = "#{${traffic2ui.reconstruction.enabled} and ${spring.kafka.listener.auto-startup:true}}"
+    )
+    public void listenOriginal(String message) {
+        try {
+            EntityUpdate original = objectMapper.readValue(message, EntityUpdate.class);
+            if (original.getId() != null) {
+                deltaReconstructor.addOriginal(original);
+            }
+        } catch (JsonProcessingException e) {
+            log.warn("Failed to deserialize original traffic message: {}", e.getMessage());
+        }
     }
 }
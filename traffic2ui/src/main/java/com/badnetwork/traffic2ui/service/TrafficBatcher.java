@@ -0,0 +1,85 @@
+package com.badnetwork.traffic2ui.service;
+
+import com.badnetwork.traffic2ui.config.Traffic2UIProperties;
+import com.badnetwork.traffic2ui.handler.TrafficWebSocketHandler;
+import com.badnetwork.traffic2ui.model.EntityUpdate;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collects updates over a tick, keeping one merged update per entity (latest absolute position,
+ * deltas summed on top), and broadcasts them as a single frame per tick.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class TrafficBatcher {
+
+    private final Traffic2UIProperties properties;
+    private final TrafficWebSocketHandler webSocketHandler;
+    private final EntityStateStore entityStateStore;
+    private final Downsampler downsampler;
+    private final ConcurrentHashMap<String, EntityUpdate> pending = new ConcurrentHashMap<>();
+    private ScheduledExecutorService scheduler;
+
+    @PostConstruct
+    public void start() {
+        long tickMs = properties.getBatch().getTickMs();
+        if (tickMs <= 0) {
+            log.info("Frame batching disabled, sending every update as it arrives");
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+        scheduler.scheduleAtFixedRate(this::flush, tickMs, tickMs, TimeUnit.MILLISECONDS);
+        log.info("Batching updates into one frame every {}ms", tickMs);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    public void add(EntityUpdate update) {
+        if (scheduler == null) {
+            entityStateStore.runExclusive(() -> {
+                entityStateStore.apply(update);
+                downsampler.onBatch(List.of(update));
+                webSocketHandler.broadcast(List.of(update));
+            });
+            return;
+        }
+        pending.merge(update.getId(), update, EntityUpdate::merge);
+    }
+
+    private void flush() {
+        try {
+            entityStateStore.runExclusive(() -> {
+                List<EntityUpdate> batch = new ArrayList<>(pending.size());
+                // remove() hands over each entry atomically; updates arriving meanwhile start the next tick
+                for (String id : pending.keySet()) {
+                    EntityUpdate update = pending.remove(id);
+                    if (update != null) {
+                        entityStateStore.apply(update);
+                        batch.add(update);
+                    }
+                }
+                downsampler.onBatch(batch);
+                webSocketHandler.broadcast(batch);
+            });
+        } catch (Exception e) {
+            log.error("Error flushing update batch: {}", e.getMessage(), e);
+        }
+    }
+}
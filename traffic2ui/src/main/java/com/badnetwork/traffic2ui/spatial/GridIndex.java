@@ -0,0 +1,102 @@
+package com.badnetwork.traffic2ui.spatial;
+
+import com.badnetwork.traffic2ui.model.Viewport;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Uniform lat/lon grid mapping cells to the items located in (or covering) them.
+ * Safe for one writer and concurrent readers.
+ *
+ * @param <T> indexed item
+ */
+public class GridIndex<T> {
+
+    private final double cellSizeDeg;
+    private final int latCells;
+    private final int lonCells;
+    private final Map<Long, Set<T>> cells = new ConcurrentHashMap<>();
+
+    public GridIndex(double cellSizeDeg) {
+        this.cellSizeDeg = cellSizeDeg;
+        this.latCells = (int) Math.ceil(180 / cellSizeDeg);
+        this.lonCells = (int) Math.ceil(360 / cellSizeDeg);
+    }
+
+    public long cellOf(double lat, double lon) {
+        return key(latIndex(lat), lonIndex(lon));
+    }
+
+    public void add(long cell, T item) {
+        cells.computeIfAbsent(cell, c -> ConcurrentHashMap.newKeySet()).add(item);
+    }
+
+    public void remove(long cell, T item) {
+        cells.computeIfPresent(cell, (c, items) -> {
+            items.remove(item);
+            return items.isEmpty() ? null : items;
+        });
+    }
+
+    public Set<T> itemsIn(long cell) {
+        return cells.getOrDefault(cell, Set.of());
+    }
+
+    /**
+     * @return the cells overlapping the viewport, or null if there are more than maxCells of them
+     */
+    public List<Long> cellsCovering(Viewport viewport, int maxCells) {
+        int south = latIndex(viewport.getSouth());
+        int north = latIndex(viewport.getNorth());
+        int west = lonIndex(viewport.getWest());
+        int east = lonIndex(viewport.getEast());
+        // Crossing the antimeridian wraps the column range
+        int columns = viewport.getEast() - viewport.getWest() >= 360 ? lonCells
+                : west <= east ? east - west + 1 : lonCells - west + east + 1;
+        long count = (long) (north - south + 1) * columns;
+        if (count > maxCells) {
+            return null;
+        }
+
+        List<Long> covering = new ArrayList<>((int) count);
+        for (int lat = south; lat <= north; lat++) {
+            for (int i = 0; i < columns; i++) {
+                covering.add(key(lat, (west + i) % lonCells));
+            }
+        }
+        return covering;
+    }
+
+    /**
+     * Visits every item in the cells overlapping the viewport; callers still filter by exact position.
+     */
+    public void forEachNear(Viewport viewport, Consumer<T> visitor) {
+        List<Long> covering = cellsCovering(viewport, cells.size());
+        if (covering == null) {
+            // Sparse grid: cheaper to walk the occupied cells than the covered ones
+            cells.values().forEach(items -> items.forEach(visitor));
+            return;
+        }
+        for (long cell : covering) {
+            itemsIn(cell).forEach(visitor);
+        }
+    }
+
+    private int latIndex(double lat) {
+        return Math.clamp((int) Math.floor((lat + 90) / cellSizeDeg), 0, latCells - 1);
+    }
+
+    private int lonIndex(double lon) {
+        double offset = lon >= -180 && lon <= 180 ? lon + 180 : ((lon + 180) % 360 + 360) % 360;
+        return Math.clamp((int) Math.floor(offset / cellSizeDeg), 0, lonCells - 1);
+    }
+
+    private static long key(int latIndex, int lonIndex) {
+        return ((long) latIndex << 32) | (lonIndex & 0xffffffffL);
+    }
+}
@@ -50,9 +50,16 @@ export class EntityManager {
     }
 
     const existing = this.entities.get(id);
+    const hasPosition = lat !== undefined && lat !== null && lon !== undefined && lon !== null;
     
-    if (newEntity || !existing) {
-      if (lat !== undefined && lon !== undefined) {
+    if (existing && hasPosition) {
+      // Absolute position (e.g. a coalesced batch update) replaces the reconstructed one
+      this.mapProvider.updateEntity(id, lat, lon);
+      existing.lat = lat;
+      existing.lon = lon;
+      existing.timestamp = timestamp;
+    } else if (newEntity || !existing) {
+      if (hasPosition) {
         this.mapProvider.addEntity(id, lat, lon, {
           size: 10,
           showLabel: false,
@@ -7,6 +7,10 @@ export class WebSocketService {
     this.maxReconnectAttempts = Infinity;
     this.reconnectDelay = 1000;
     this.currentUrl = null;
+    this.textDecoder = new TextDecoder();
+    // ?format=packed: dictionary index -> entity id, rebuilt from dictionary frames on every connection;
+    // the server reuses indices of expired entities, and a later entry for an index replaces the earlier one
+    this.entityIds = [];
   }
 
   connect(url) {
@@ -26,6 +30,9 @@ export class WebSocketService {
 
     try {
       this.ws = new WebSocket(wsUrl);
+      this.ws.binaryType = 'arraybuffer';
+
+      this.entityIds = [];
 
       this.ws.onopen = () => {
         console.log('WebSocket connected to', wsUrl);
@@ -36,8 +43,22 @@ export class WebSocketService {
 
       this.ws.onmessage = (event) => {
         try {
-          const data = typeof event.data === 'string' ? JSON.parse(event.data) : event.data;
-          this.emitToListeners('traffic', data);
+          if (event.data instanceof ArrayBuffer && this.isPacked(event.data)) {
+            this.decodePacked(event.data);
+            return;
+          }
+          // ?format=json-binary, the default, delivers the same JSON as UTF-8 in binary frames
+          const text = event.data instanceof ArrayBuffer ? this.textDecoder.decode(event.data) : event.data;
+          const data = typeof text === 'string' ? JSON.parse(text) : text;
+          // traffic2ui batches updates into one array frame per tick
+          if (Array.isArray(data)) {
+            data.forEach(update => this.emitToListeners('traffic', update));
+          } else if (data && data.type === 'cells') {
+            // "cells" resolution level: entity counts per grid cell
+            this.emitToListeners('cells', data);
+          } else {
+            this.emitToListeners('traffic', data);
+          }
         } catch (error) {
           console.error('Error parsing WebSocket message:', error);
           this.emitToListeners('traffic', event.data);
@@ -64,6 +85,68 @@ export class WebSocketService {
     }
   }
 
+  /**
+   * Packed frames start with a type byte (1 or 2, or 3 for playback records); JSON frames start with '[' or '{'.
+   */
+  isPacked(buffer) {
+    const type = buffer.byteLength > 0 ? new Uint8Array(buffer, 0, 1)[0] : 0;
+    return type >= 1 && type <= 3;
+  }
+
+  /**
+   * Decodes a little-endian packed frame; see PackedFrameCodec in traffic2ui for the layout.
+   */
+  decodePacked(buffer) {
+    const view = new DataView(buffer);
+    const type = view.getUint8(0);
+
+    if (type === 3) {
+      // Playback: records of { i64 timestamp, i32 length, UTF-8 JSON message } straight from the recording;
+      // a keyframe record (sent on seek) is an array of absolute positions
+      let position = 1;
+      while (position + 12 <= buffer.byteLength) {
+        const length = view.getInt32(position + 8, true);
+        const json = this.textDecoder.decode(new Uint8Array(buffer, position + 12, length));
+        const data = JSON.parse(json);
+        if (Array.isArray(data)) {
+          data.forEach(update => this.emitToListeners('traffic', update));
+        } else {
+          this.emitToListeners('traffic', data);
+        }
+        position += 12 + length;
+      }
+      return;
+    }
+
+    const count = view.getUint32(1, true);
+    let offset = 5;
+
+    if (type === 1) {
+      for (let i = 0; i < count; i++) {
+        const index = view.getUint32(offset, true);
+        const length = view.getUint16(offset + 4, true);
+        this.entityIds[index] = this.textDecoder.decode(new Uint8Array(buffer, offset + 6, length));
+        offset += 6 + length;
+      }
+      return;
+    }
+
+    const base = Number(view.getBigInt64(offset, true));
+    offset += 8;
+    for (let i = 0; i < count; i++) {
+      const id = this.entityIds[view.getUint32(offset, true)];
+      if (id !== undefined) {
+        this.emitToListeners('traffic', {
+          id,
+          lat: view.getInt32(offset + 4, true) / 1e7,
+          lon: view.getInt32(offset + 8, true) / 1e7,
+          timestamp: base + view.getInt32(offset + 12, true)
+        });
+      }
+      offset += 16;
+    }
+  }
+
   attemptReconnect() {
     if (this.reconnectAttempts < this.maxReconnectAttempts && this.currentUrl) {
       this.reconnectAttempts++;
@@ -94,6 +177,34 @@ export class WebSocketService {
     console.log('Topic unsubscription not supported for native WebSocket.');
   }
 
+  /**
+   * Restricts the feed to entities inside the bounding box (degrees); pass null for all entities.
+   */
+  subscribeViewport(bbox) {
+    if (this.ws && this.connected) {
+      this.ws.send(JSON.stringify({ type: 'subscribe', bbox }));
+    }
+  }
+
+  /**
+   * Switches to a downsampled level ('1hz', '0.1hz' or 'cells'); subscribeViewport returns to the full stream.
+   */
+  subscribeResolution(resolution) {
+    if (this.ws && this.connected) {
+      this.ws.send(JSON.stringify({ type: 'subscribe', resolution }));
+    }
+  }
+
+  /**
+   * Controls a playback connection (/playback): { type: 'seek', from }, { type: 'speed', speed },
+   * { type: 'pause' } or { type: 'resume' }.
+   */
+  sendPlaybackCommand(command) {
+    if (this.ws && this.connected) {
+      this.ws.send(JSON.stringify(command));
+    }
+  }
+
   on(event, callback) {
     if (!this.listeners.has(event)) {
       this.listeners.set(event, []);